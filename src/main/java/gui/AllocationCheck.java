@@ -0,0 +1,109 @@
+package gui;
+
+import log.LogLevel;
+import log.LogWindowSource;
+import log.Logger;
+import model.SteeringMode;
+import model.World;
+import perf.AllocationProbe;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Проверка, что горячие пути не выделяют память в установившемся режиме:
+ * шаг модели, отрисовка неизменной сцены и добавление в лог без слушателей
+ * Запускается тестом AllocationCheckTest при сборке и из меню "Тесты";
+ * при превышении бюджета сборка падает
+ */
+public final class AllocationCheck
+{
+    //допустимое число байт на операцию
+    private static final double BUDGET = 0;
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    private AllocationCheck()
+    {
+    }
+
+    /**
+     * Запуск из меню, результаты пишутся в лог
+     */
+    public static void runAndLog()
+    {
+        if (!run(Logger::debug))
+        {
+            Logger.error("Выделение памяти: бюджет превышен");
+        }
+    }
+
+    /**
+     * Выполняет все замеры
+     * @param report куда писать результаты
+     * @return уложились ли все операции в бюджет
+     */
+    public static boolean run(Consumer<String> report)
+    {
+        if (!AllocationProbe.isSupported())
+        {
+            report.accept("Выделение памяти: JVM не умеет считать выделенную память, проверка пропущена");
+            return true;
+        }
+        boolean passed = true;
+        for (SteeringMode mode : SteeringMode.values())
+        {
+            World world = movingWorld(mode);
+            passed &= check(report, "шаг модели, " + mode.title(), () -> world.step(10));
+        }
+
+        World telemetryWorld = movingWorld(SteeringMode.Dubins);
+        ByteBuffer frame = ByteBuffer.allocateDirect(64 * 1024);
+        passed &= check(report, "шаг модели и кодирование снимка для телеметрии", () -> {
+            telemetryWorld.step(10);
+            frame.clear();
+            telemetryWorld.writeSnapshot(frame, -1);
+        });
+
+        World world = new World();
+        GameVisualizer visualizer = new GameVisualizer(world);
+        visualizer.setSize(400, 400);
+        BufferedImage screen = new BufferedImage(400, 400, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = screen.createGraphics();
+        passed &= check(report, "отрисовка неизменной сцены", () -> visualizer.paint(g));
+        g.dispose();
+
+        LogWindowSource logSource = new LogWindowSource(100);
+        passed &= check(report, "добавление в лог без слушателей",
+                () -> logSource.append(LogLevel.Debug, "сообщение"));
+        return passed;
+    }
+
+    /**
+     * Мир, в котором роботы не успеют доехать до цели за время замера
+     * @param mode регулятор
+     * @return мир
+     */
+    private static World movingWorld(SteeringMode mode)
+    {
+        World world = new World();
+        for (int i = 0; i < 100; i++)
+        {
+            world.addRobot(i % 10 * 40, i / 10 * 40, i);
+        }
+        world.setSteeringMode(mode);
+        world.setTargetPosition(1_000_000, 1_000_000);
+        return world;
+    }
+
+    private static boolean check(Consumer<String> report, String name, Runnable operation)
+    {
+        double bytes = AllocationProbe.bytesPerOperation(operation, WARMUP, ITERATIONS);
+        boolean passed = bytes <= BUDGET;
+        report.accept(String.format("Выделение памяти: %s - %.2f байт/операция%s",
+                name, bytes, passed ? "" : ", бюджет " + BUDGET));
+        return passed;
+    }
+}
@@ -0,0 +1,81 @@
+package gui;
+
+import java.awt.geom.AffineTransform;
+
+/**
+ * Камера окна игры: сдвиг и масштаб, с которыми мир рисуется на экране
+ * У каждого окна своя камера, сам мир при этом общий
+ * Изменяется и читается только в потоке обработки событий
+ */
+public class Camera
+{
+    private static final double MIN_SCALE = 0.05;
+    private static final double MAX_SCALE = 20;
+
+    //экранные координаты точки мира (0, 0)
+    private double offsetX;
+    private double offsetY;
+    //сколько пикселей экрана в единице мира
+    private double scale = 1;
+    //растет при каждом изменении камеры, чтобы знать, когда перерисовать сцену
+    private long version;
+
+    /**
+     * Записывает преобразование камеры в готовый объект, без выделения памяти
+     * @param transform преобразование, которое нужно заменить
+     */
+    public void applyTo(AffineTransform transform)
+    {
+        transform.setToTranslation(offsetX, offsetY);
+        transform.scale(scale, scale);
+    }
+
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public double toWorldX(double screenX)
+    {
+        return (screenX - offsetX) / scale;
+    }
+
+    public double toWorldY(double screenY)
+    {
+        return (screenY - offsetY) / scale;
+    }
+
+    public double getScale()
+    {
+        return scale;
+    }
+
+    /**
+     * Сдвигает камеру
+     * @param dx сдвиг по горизонтали в пикселях экрана
+     * @param dy сдвиг по вертикали в пикселях экрана
+     */
+    public void pan(double dx, double dy)
+    {
+        offsetX += dx;
+        offsetY += dy;
+        version++;
+    }
+
+    /**
+     * Меняет масштаб так, что точка под курсором остается на месте
+     * @param factor во сколько раз увеличить масштаб
+     * @param screenX экранная координата курсора
+     * @param screenY экранная координата курсора
+     */
+    public void zoom(double factor, double screenX, double screenY)
+    {
+        double newScale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * factor));
+        double worldX = toWorldX(screenX);
+        double worldY = toWorldY(screenY);
+        scale = newScale;
+        offsetX = screenX - worldX * scale;
+        offsetY = screenY - worldY * scale;
+        version++;
+    }
+}
@@ -1,228 +1,339 @@
 package gui;
 
+import model.World;
+import model.WorldSnapshot;
+import perf.FrameEvent;
+import perf.PerformanceMonitor;
+
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 /**
- * Класс для визуализации и управления движением робота на игровом поле
- * Робот движется к цели, задаваемой кликом мыши, с ограничениями скорости
- * и угловой скорости
+ * Класс для визуализации движения роботов на игровом поле
+ * Сам мир общий для всех окон и шагается отдельно, визуализатор только
+ * рисует его снимки со своей частотой кадров и через свою камеру,
+ * а клики мыши передает миру как новую цель
+ * Сцена рисуется либо в потоке обработки событий, либо по плиткам
+ * в потоках TileRenderer, и тогда поток событий только копирует картинку
  */
 public class GameVisualizer extends JPanel
 {
-    //таймер для генерации событий обновления
-    private final Timer timer = initTimer();
-    
-    //инициализует таймер типо он работает, пока есть событие, например у робота цель
-    private static Timer initTimer()
-    {
-        Timer timer = new Timer("events generator", true);
-        return timer;
-    }
+    //период перерисовки по умолчанию, мс
+    public static final int DEFAULT_FRAME_PERIOD = 50;
+
+    //общий мир, который показывает визуализатор
+    private final World world;
+    //камера этого окна
+    private final Camera camera = new Camera();
+    //общие слои истории движения, null если окну они не даны
+    private final TrailLayer trailLayer;
+    private final HeatmapLayer heatmapLayer;
+    //какие слои показывает это окно, читаются и потоками отрисовки
+    private volatile boolean trailsVisible;
+    private volatile boolean heatmapVisible;
+
+    //таймер для генерации событий перерисовки, существует пока панель на экране
+    private Timer timer;
+    //период перерисовки, мс
+    private int framePeriod = DEFAULT_FRAME_PERIOD;
 
-    //координты, робота которые могут ищменять
-    private volatile double robotPositionX = 100;
-    private volatile double robotPositionY = 100; 
-    private volatile double robotDirection = 0; 
+    //запрос на перерисовку уже в очереди событий, новый не нужен
+    private final AtomicBoolean redrawPending = new AtomicBoolean();
+    //задача перерисовки создается один раз, а не на каждый кадр
+    private final Runnable redrawTask = () -> {
+        redrawPending.set(false);
+        repaint();
+    };
+    //когда была запрошена еще не выполненная перерисовка, 0 - если такой нет
+    //используется только при включенных замерах производительности
+    private volatile long redrawRequestedAt;
 
-    //координаты цели
-    private volatile int targetPositionX = 150;
-    private volatile int targetPositionY = 100;
+    //готовая картинка сцены, перерисовывается только когда мир, камера или размер изменились
+    private BufferedImage sceneImage;
+    //версии мира и камеры, из которых нарисована sceneImage
+    private long sceneVersion = -1;
+    private long sceneCameraVersion = -1;
+    //преобразование камеры, переиспользуется между кадрами
+    private final AffineTransform cameraTransform = new AffineTransform();
 
-    //максимальная линейная скорость
-    private static final double MAX_VELOCITY = 0.1;
-    //максимальная углавая скорость робота
-    private static final double MAX_ANGULAR_VELOCITY = 0.001;
+    //рисовать ли сцену по плиткам в потоках TileRenderer
+    private boolean tiledRendering;
+    //в режиме плиток: картинка для следующей отрисовки, пока она не идет
+    private BufferedImage backImage;
+    //отрисовка в потоках уже идет, новая не запускается
+    private boolean renderInFlight;
+    //готовая картинка из потоков отрисовки и версии, из которых она нарисована
+    private volatile BufferedImage renderedImage;
+    private volatile long renderedVersion;
+    private volatile long renderedCameraVersion;
 
     /**
      * Конструктор визуализации игры
-     * Создает визуализатор игры с таймерами для обновления
-     * отображения и модели движения
+     * Создает визуализатор для общего мира, перерисовка запускается,
+     * когда панель появляется на экране
+     * @param world мир, который нужно показывать
      */
-    public GameVisualizer() 
+    public GameVisualizer(World world)
     {
-        //таймер для перерисовки
-        timer.schedule(new TimerTask()
+        this(world, null, null);
+    }
+
+    /**
+     * Конструктор визуализации игры со слоями следов и тепловой карты
+     * @param world мир, который нужно показывать
+     * @param trailLayer общий слой следов
+     * @param heatmapLayer общий слой тепловой карты
+     */
+    public GameVisualizer(World world, TrailLayer trailLayer, HeatmapLayer heatmapLayer)
+    {
+        this.world = world;
+        this.trailLayer = trailLayer;
+        this.heatmapLayer = heatmapLayer;
+        MouseAdapter mouseHandler = new MouseAdapter()
         {
+            //последняя точка перетаскивания камеры
+            private Point dragFrom;
+
             @Override
-            public void run()
+            public void mouseClicked(MouseEvent e)
             {
-                onRedrawEvent();//запросить перерисовку
+                if (SwingUtilities.isLeftMouseButton(e))
+                {
+                    //с Shift цель добавляется в очередь, иначе становится общей
+                    if (e.isShiftDown())
+                    {
+                        enqueueTarget(e.getPoint());
+                    }
+                    else
+                    {
+                        setTargetPosition(e.getPoint());//установить новую цель, перед эти получить
+                    }
+                    repaint(); //перерировать
+                }
             }
-        }, 0, 50);//задержки
 
-        //обвновление робота
-        timer.schedule(new TimerTask()
-        {
             @Override
-            public void run()
+            public void mousePressed(MouseEvent e)
             {
-                onModelUpdateEvent();//обвноить позицию робота
+                dragFrom = e.getPoint();
             }
-        }, 0, 10);
 
-        //обработчик кликов мышки
-        addMouseListener(new MouseAdapter()
-        {
             @Override
-            public void mouseClicked(MouseEvent e)
+            public void mouseDragged(MouseEvent e)
+            {
+                //камера двигается правой или средней кнопкой
+                if (dragFrom != null && !SwingUtilities.isLeftMouseButton(e))
+                {
+                    camera.pan(e.getX() - dragFrom.x, e.getY() - dragFrom.y);
+                    dragFrom = e.getPoint();
+                    repaint();
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e)
             {
-                setTargetPosition(e.getPoint());//установить новую цель, перед эти получить
-                repaint(); //перерировать
+                camera.zoom(Math.pow(1.1, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+                repaint();
             }
-        });
+        };
+        //обработчик кликов мышки
+        addMouseListener(mouseHandler);
+        addMouseMotionListener(mouseHandler);
+        addMouseWheelListener(mouseHandler);
         setDoubleBuffered(true); //двойная буферизация, обычно используется для плавной анимации
     }
 
     /**
-     * устанавливает новую позицию цели
-     * @param p точка с коррдинатами
+     * Меняет частоту кадров этого окна
+     * @param framePeriod период перерисовки в мс
      */
-    protected void setTargetPosition(Point p)
+    public void setFramePeriod(int framePeriod)
     {
-        targetPositionX = p.x;
-        targetPositionY = p.y;
+        this.framePeriod = framePeriod;
+        if (timer != null)
+        {
+            stopRedrawTimer();
+            startRedrawTimer();
+        }
     }
 
-    /**
-     * запускает перерисовку компонента в потоке обработки событий.
-     */
-    protected void onRedrawEvent()
+    public int getFramePeriod()
     {
-        EventQueue.invokeLater(this::repaint);
+        return framePeriod;
     }
 
-    /**
-     * вычисляет растояние между точками
-     * @param x1
-     * @param y1
-     * @param x2
-     * @param y2
-     * @return растояние между точками
-     */
-    private static double distance(double x1, double y1, double x2, double y2)
+    @Override
+    public void addNotify()
     {
-        double diffX = x1 - x2;
-        double diffY = y1 - y2;
-        return Math.sqrt(diffX * diffX + diffY * diffY);
+        super.addNotify();
+        startRedrawTimer();
+    }
+
+    @Override
+    public void removeNotify()
+    {
+        //при сворачивании окна панель тоже убирается, поэтому слои здесь
+        //не отпускаются, иначе они разойдутся с пунктами меню и история сбросится
+        stopRedrawTimer();
+        super.removeNotify();
     }
 
     /**
-     * вычисляет угол точки от from к to
-     * @param fromX
-     * @param fromY
-     * @param toX
-     * @param toY
-     * @return нормализованный угол в радианах от y до х осей
+     * Отпускает слои истории движения, когда окно закрыто насовсем
      */
-    private static double angleTo(double fromX, double fromY, double toX, double toY)
+    public void releaseLayers()
     {
-        double diffX = toX - fromX;
-        double diffY = toY - fromY;
-        
-        return asNormalizedRadians(Math.atan2(diffY, diffX));
+        setTrailsVisible(false);
+        setHeatmapVisible(false);
     }
 
     /**
-     * обновляет модель движения робота
-     * вычисляет скорость и направление к цели и перемещает робота
+     * Показывает или прячет следы роботов в этом окне
+     * @param visible показывать ли следы
      */
-    protected void onModelUpdateEvent()
+    public void setTrailsVisible(boolean visible)
     {
-        double distance = distance(targetPositionX, targetPositionY, 
-            robotPositionX, robotPositionY);
-        if (distance < 0.5)
+        if (trailLayer == null || visible == trailsVisible)
         {
             return;
         }
-        double velocity = MAX_VELOCITY;
-        double angleToTarget = angleTo(robotPositionX, robotPositionY,
-                targetPositionX, targetPositionY);
-        double angularVelocity = 0;
-        //нужно повернуть на право (против часовой стрелки)
-        if (angleToTarget > robotDirection)
+        trailsVisible = visible;
+        if (visible)
         {
-            angularVelocity = MAX_ANGULAR_VELOCITY;
+            trailLayer.acquire();
         }
-        //нужно повернуть на лево
-        if (angleToTarget < robotDirection)
+        else
         {
-            angularVelocity = -MAX_ANGULAR_VELOCITY;
+            trailLayer.release();
         }
-
-        //перемещение
-        moveRobot(velocity, angularVelocity, 10);
+        sceneVersion = -1;
+        repaint();
     }
 
     /**
-     * ограничивает значение заданным диапазоном
-     * @param value
-     * @param min
-     * @param max
-     * @return
+     * Показывает или прячет тепловую карту в этом окне
+     * @param visible показывать ли карту
      */
-    private static double applyLimits(double value, double min, double max)
+    public void setHeatmapVisible(boolean visible)
     {
-        if (value < min)
-            return min;
-        if (value > max)
-            return max;
-        return value;
+        if (heatmapLayer == null || visible == heatmapVisible)
+        {
+            return;
+        }
+        heatmapVisible = visible;
+        if (visible)
+        {
+            heatmapLayer.acquire();
+        }
+        else
+        {
+            heatmapLayer.release();
+        }
+        sceneVersion = -1;
+        repaint();
     }
 
     /**
-     * перемещение робота с линейной и угловой скоростями в течении определенного времени
-     * @param velocity линейная скорость
-     * @param angularVelocity угловая скорость
-     * @param duration длительность движения в мс
+     * Включает отрисовку сцены по плиткам в нескольких потоках
+     * Поток обработки событий тогда только копирует готовую картинку,
+     * а новая рисуется в фоне и показывается на следующем кадре
+     * @param tiled рисовать ли по плиткам
      */
-    private void moveRobot(double velocity, double angularVelocity, double duration)
+    public void setTiledRendering(boolean tiled)
+    {
+        tiledRendering = tiled;
+        sceneVersion = -1;
+        repaint();
+    }
+
+    public boolean isTiledRendering()
+    {
+        return tiledRendering;
+    }
+
+    Camera getCamera()
+    {
+        return camera;
+    }
+
+    private void startRedrawTimer()
     {
-        velocity = applyLimits(velocity, 0, MAX_VELOCITY);
-        angularVelocity = applyLimits(angularVelocity, -MAX_ANGULAR_VELOCITY, MAX_ANGULAR_VELOCITY);
-        //вычисление новой позиции с учетом криволинейного движения
-        double newX = robotPositionX + velocity / angularVelocity * 
-            (Math.sin(robotDirection  + angularVelocity * duration) -
-                Math.sin(robotDirection));
-        //если новое значение х не равно бесконечность (деление на 0, те angularVelocity=0) то криволиненый
-        //иначе прямолинейно
-        if (!Double.isFinite(newX))//isFinite - бесконечность
+        timer = new Timer("redraw generator", true);
+        //таймер для перерисовки
+        timer.schedule(new TimerTask()
         {
-            newX = robotPositionX + velocity * duration * Math.cos(robotDirection);
-        }
-        double newY = robotPositionY - velocity / angularVelocity * 
-            (Math.cos(robotDirection  + angularVelocity * duration) -
-                Math.cos(robotDirection));
-        if (!Double.isFinite(newY))
+            @Override
+            public void run()
+            {
+                onRedrawEvent();//запросить перерисовку
+            }
+        }, 0, framePeriod);//задержки
+    }
+
+    private void stopRedrawTimer()
+    {
+        if (timer != null)
         {
-            newY = robotPositionY + velocity * duration * Math.sin(robotDirection);
+            timer.cancel();
+            timer = null;
         }
-        robotPositionX = newX;
-        robotPositionY = newY;
-        double newDirection = asNormalizedRadians(robotDirection + angularVelocity * duration); 
-        robotDirection = newDirection;
     }
 
     /**
-     *  Нормаолизация диапазона от 0 до 2ПИ
-     * @param angle угол в радианах
-     * @return нормализованный угол
+     * При смене оформления меняется цвет фона, поэтому сцену надо перерисовать
      */
-    private static double asNormalizedRadians(double angle)
+    @Override
+    public void updateUI()
     {
-        while (angle < 0)
+        super.updateUI();
+        sceneVersion = -1;
+    }
+
+    /**
+     * устанавливает новую позицию цели
+     * @param p точка с коррдинатами на экране
+     */
+    protected void setTargetPosition(Point p)
+    {
+        world.setTargetPosition(round(camera.toWorldX(p.x)), round(camera.toWorldY(p.y)));
+    }
+
+    /**
+     * добавляет цель в очередь, на нее поедет ближайший по назначению робот
+     * @param p точка с коррдинатами на экране
+     */
+    protected void enqueueTarget(Point p)
+    {
+        world.enqueueTarget(round(camera.toWorldX(p.x)), round(camera.toWorldY(p.y)));
+    }
+
+    /**
+     * запускает перерисовку компонента в потоке обработки событий.
+     */
+    protected void onRedrawEvent()
+    {
+        //прошлый запрос еще не обработан, значит он будет объединен с этим
+        if (!redrawPending.compareAndSet(false, true))
         {
-            angle += 2*Math.PI;
+            if (PerformanceMonitor.isEnabled())
+            {
+                PerformanceMonitor.recordDroppedFrame();
+            }
+            return;
         }
-        while (angle >= 2*Math.PI)
+        if (PerformanceMonitor.isEnabled() && redrawRequestedAt == 0)
         {
-            angle -= 2*Math.PI;
+            redrawRequestedAt = System.nanoTime();
         }
-        return angle;
+        EventQueue.invokeLater(redrawTask);
     }
 
     /**
@@ -230,24 +341,207 @@ public class GameVisualizer extends JPanel
      * @param value округляемое значение
      * @return округленное значение
      */
-    private static int round(double value)
+    static int round(double value)
     {
-        return (int)(value + 0.5);
+        return (int)Math.floor(value + 0.5);
     }
 
     /**
-     * отрисовка робота и цели
+     * отрисовка роботов и цели
      * @param g  the <code>Graphics</code> context in which to paint
      */
     @Override
     public void paint(Graphics g)
     {
-        //сначла рисуем то что должно быть по умолчанию, типо фон и тд
-        super.paint(g);
-        //преобразуем в 2д графику отчасти для поворотов
-        Graphics2D g2d = (Graphics2D)g;
-        drawRobot(g2d, round(robotPositionX), round(robotPositionY), robotDirection);//рисуем робота
-        drawTarget(g2d, targetPositionX, targetPositionY);//рисуем цель
+        if (PerformanceMonitor.isEnabled())
+        {
+            FrameEvent event = new FrameEvent();
+            event.begin();
+            long start = System.nanoTime();
+            long requested = redrawRequestedAt;
+            redrawRequestedAt = 0;
+            paintScene(g);
+            PerformanceMonitor.recordFrame(event, start, requested);
+        }
+        else
+        {
+            paintScene(g);
+        }
+    }
+
+    /**
+     * отрисовка фона, роботов и цели из текущего снимка мира
+     * Если с прошлого кадра ничего не изменилось, просто копируется готовая
+     * картинка, поэтому кадр без изменений не выделяет память
+     * @param g графика
+     */
+    private void paintScene(Graphics g)
+    {
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0)
+        {
+            return;
+        }
+        WorldSnapshot snapshot = world.snapshot();
+        if (tiledRendering)
+        {
+            paintTiled(g, snapshot, width, height);
+            return;
+        }
+        if (sceneImage == null || sceneImage.getWidth() != width || sceneImage.getHeight() != height)
+        {
+            sceneImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            sceneVersion = -1;
+        }
+        if (snapshot.getVersion() != sceneVersion || camera.getVersion() != sceneCameraVersion)
+        {
+            camera.applyTo(cameraTransform);
+            renderScene(sceneImage, snapshot, cameraTransform, false);
+            sceneVersion = snapshot.getVersion();
+            sceneCameraVersion = camera.getVersion();
+        }
+        g.drawImage(sceneImage, 0, 0, null);
+    }
+
+    /**
+     * отрисовка в режиме плиток: забирает картинку, готовую в потоках
+     * отрисовки, если сцена устарела - запускает новую отрисовку в фоне
+     * и копирует на экран последнюю готовую картинку
+     * @param g графика
+     * @param snapshot текущий снимок мира
+     * @param width ширина панели
+     * @param height высота панели
+     */
+    private void paintTiled(Graphics g, WorldSnapshot snapshot, int width, int height)
+    {
+        BufferedImage rendered = renderedImage;
+        if (rendered != null)
+        {
+            renderedImage = null;
+            backImage = sceneImage;
+            sceneImage = rendered;
+            sceneVersion = renderedVersion;
+            sceneCameraVersion = renderedCameraVersion;
+            renderInFlight = false;
+        }
+        boolean outdated = sceneImage == null
+                || sceneImage.getWidth() != width || sceneImage.getHeight() != height
+                || snapshot.getVersion() != sceneVersion || camera.getVersion() != sceneCameraVersion;
+        if (outdated && !renderInFlight)
+        {
+            BufferedImage image = backImage;
+            if (image == null || image.getWidth() != width || image.getHeight() != height)
+            {
+                image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            }
+            backImage = null;
+            renderInFlight = true;
+            //потоку отрисовки нужна своя копия камеры, а состояние панели
+            //берется здесь, в потоке событий
+            AffineTransform transform = new AffineTransform();
+            camera.applyTo(transform);
+            long cameraVersion = camera.getVersion();
+            Color background = getBackground();
+            boolean heatmap = heatmapVisible;
+            boolean trails = trailsVisible;
+            BufferedImage target = image;
+            TileRenderer.execute(() -> {
+                boolean done = false;
+                try
+                {
+                    renderScene(target, snapshot, transform, background, heatmap, trails, true);
+                    renderedVersion = snapshot.getVersion();
+                    renderedCameraVersion = cameraVersion;
+                    renderedImage = target;
+                    done = true;
+                }
+                finally
+                {
+                    if (!done)
+                    {
+                        //отрисовка упала: следующий кадр запустит новую, иначе окно застынет
+                        EventQueue.invokeLater(() -> {
+                            renderInFlight = false;
+                            backImage = target;
+                        });
+                    }
+                    repaint();
+                }
+            });
+        }
+        if (sceneImage != null)
+        {
+            g.drawImage(sceneImage, 0, 0, null);
+        }
+    }
+
+    /**
+     * рисует сцену в картинку с текущим фоном и слоями панели,
+     * вызывается в потоке событий
+     * @param image картинка сцены
+     * @param snapshot снимок мира
+     * @param transform преобразование камеры
+     * @param tiled рисовать ли роботов по плиткам в нескольких потоках
+     */
+    void renderScene(BufferedImage image, WorldSnapshot snapshot, AffineTransform transform, boolean tiled)
+    {
+        renderScene(image, snapshot, transform, getBackground(), heatmapVisible, trailsVisible, tiled);
+    }
+
+    /**
+     * рисует сцену в картинку
+     * В режиме плиток вызывается в потоке отрисовки, поэтому состояние панели
+     * передается параметрами, а не читается из нее
+     * @param image картинка сцены
+     * @param snapshot снимок мира
+     * @param transform преобразование камеры
+     * @param background цвет фона панели
+     * @param heatmap рисовать ли тепловую карту
+     * @param trails рисовать ли следы
+     * @param tiled рисовать ли роботов по плиткам в нескольких потоках
+     */
+    private void renderScene(BufferedImage image, WorldSnapshot snapshot, AffineTransform transform,
+                             Color background, boolean heatmap, boolean trails, boolean tiled)
+    {
+        Graphics2D g2d = image.createGraphics();
+        try
+        {
+            //сначла фон, как его нарисовала бы сама панель
+            g2d.setColor(background);
+            g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g2d.setTransform(transform);
+            //слои истории лежат под роботами
+            if (heatmap)
+            {
+                heatmapLayer.paint(g2d, snapshot.getRobotCount());
+            }
+            if (trails)
+            {
+                trailLayer.paint(g2d, snapshot.getRobotCount());
+            }
+            if (tiled)
+            {
+                TileRenderer.drawRobots(image, transform, snapshot);
+            }
+            else
+            {
+                for (int i = 0; i < snapshot.getRobotCount(); i++)
+                {
+                    drawRobot(g2d, transform, round(snapshot.getRobotX(i)), round(snapshot.getRobotY(i)),
+                            snapshot.getRobotDirection(i));//рисуем робота
+                }
+            }
+            g2d.setTransform(transform);
+            for (int i = 0; i < snapshot.getTargetCount(); i++)
+            {
+                drawTarget(g2d, round(snapshot.getTargetX(i)), round(snapshot.getTargetY(i)));//рисуем цель
+            }
+        }
+        finally
+        {
+            g2d.dispose();
+        }
     }
 
     /**
@@ -279,24 +573,24 @@ public class GameVisualizer extends JPanel
     /**
      * рисует овального робота
      * @param g графика
+     * @param base преобразование камеры, от которого отсчитывается поворот
      * @param x центр робота
      * @param y центр робота
      * @param direction направление робота
      */
-    private void drawRobot(Graphics2D g, int x, int y, double direction)
+    static void drawRobot(Graphics2D g, AffineTransform base, int x, int y, double direction)
     {
-        int robotCenterX = round(robotPositionX); 
-        int robotCenterY = round(robotPositionY);
-        AffineTransform t = AffineTransform.getRotateInstance(direction, robotCenterX, robotCenterY); 
-        g.setTransform(t);
+        //поворачиваем вокруг центра робота
+        g.setTransform(base);
+        g.rotate(direction, x, y);
         g.setColor(Color.MAGENTA);
-        fillOval(g, robotCenterX, robotCenterY, 30, 10);
+        fillOval(g, x, y, 30, 10);
         g.setColor(Color.BLACK);
-        drawOval(g, robotCenterX, robotCenterY, 30, 10);
+        drawOval(g, x, y, 30, 10);
         g.setColor(Color.WHITE);
-        fillOval(g, robotCenterX  + 10, robotCenterY, 5, 5);
+        fillOval(g, x  + 10, y, 5, 5);
         g.setColor(Color.BLACK);
-        drawOval(g, robotCenterX  + 10, robotCenterY, 5, 5);
+        drawOval(g, x  + 10, y, 5, 5);
     }
 
     /**
@@ -305,10 +599,8 @@ public class GameVisualizer extends JPanel
      * @param x координата цели
      * @param y координата цели
      */
-    private void drawTarget(Graphics2D g, int x, int y)
+    private static void drawTarget(Graphics2D g, int x, int y)
     {
-        AffineTransform t = AffineTransform.getRotateInstance(0, 0, 0); 
-        g.setTransform(t);
         g.setColor(Color.GREEN);
         fillOval(g, x, y, 5, 5);
         g.setColor(Color.BLACK);
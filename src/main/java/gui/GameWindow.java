@@ -1,21 +1,36 @@
 package gui;
 
+import model.World;
+
 import javax.swing.*;
+import javax.swing.event.InternalFrameAdapter;
+import javax.swing.event.InternalFrameEvent;
 import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.util.function.Consumer;
 /**
  * Внутреннее окно для отображения игрового поля с роботом.
  * Содержит визуализатор игры GameVisualizer.
+ * Таких окон может быть несколько, все они показывают один общий мир.
  */
 public class GameWindow extends JInternalFrame
 {
     //визуализатор игрового процесса
     private final GameVisualizer gameVisualizer;
+    //панель с показателями производительности поверх поля
+    private final PerformanceOverlay performanceOverlay;
+
+    //частоты кадров, которые можно выбрать в меню, кадров в секунду
+    private static final int[] FRAME_RATES = {10, 20, 30, 60};
 
     /**
      * Конструктор
      * Создает игровое окно с панелью визуализации
+     * @param world общий мир, который показывает окно
+     * @param trailLayer общий слой следов роботов
+     * @param heatmapLayer общий слой тепловой карты
      */
-    public GameWindow() 
+    public GameWindow(World world, TrailLayer trailLayer, HeatmapLayer heatmapLayer)
     {
         //вызов конструктора родительского класс (JInternalFrame),
         //где создается окно с заголовком "Игровое поле", и разрешегие на изменение размера,
@@ -23,10 +38,114 @@ public class GameWindow extends JInternalFrame
         super("Игровое поле", true, true, true, true);
         //GameVisualizer - это специальная панель (JPanel), которая умеет рисовать вот в нашем случае
         //робота и цели, обрабатывает движения робота, реагирует на клики мышки
-        gameVisualizer = new GameVisualizer(); //создание вызуализатора игры
+        gameVisualizer = new GameVisualizer(world, trailLayer, heatmapLayer); //создание вызуализатора игры
+        performanceOverlay = new PerformanceOverlay();
+        //OverlayLayout кладет панели друг на друга, первая добавленная оказывается сверху
+        //панели перекрываются, поэтому перерисовка поля должна дорисовывать и панель
+        //показателей поверх него, иначе поле закрашивает ее до ее следующего обновления
+        JPanel layers = new JPanel()
+        {
+            @Override
+            public boolean isOptimizedDrawingEnabled()
+            {
+                return false;
+            }
+        };
+        layers.setLayout(new OverlayLayout(layers));
+        layers.add(performanceOverlay);
+        layers.add(gameVisualizer);
         JPanel panel = new JPanel(new BorderLayout());//так же создается панель как в логах
-        panel.add(gameVisualizer, BorderLayout.CENTER);//на эту панель на центр закрепляется визуализатор
+        panel.add(layers, BorderLayout.CENTER);//на эту панель на центр закрепляется визуализатор
         getContentPane().add(panel); //получаем содержимое окна и кладем туда нашу панель
+        setJMenuBar(createViewMenuBar());
+        //закрытое окно больше не держит запись слоев, свернутое - держит
+        addInternalFrameListener(new InternalFrameAdapter()
+        {
+            @Override
+            public void internalFrameClosed(InternalFrameEvent e)
+            {
+                gameVisualizer.releaseLayers();
+            }
+        });
         pack(); //автоподгон окна по содержимому
     }
+
+    /**
+     * Создает меню окна с переключателями отображения
+     * @return строка меню игрового окна
+     */
+    private JMenuBar createViewMenuBar()
+    {
+        JMenuBar menuBar = new JMenuBar();
+        JMenu viewMenu = new JMenu("Вид");
+        viewMenu.setMnemonic(KeyEvent.VK_D);
+        viewMenu.add(createPerformanceOverlayItem());
+        viewMenu.add(createFrameRateMenu());
+        viewMenu.add(createTiledRenderingItem());
+        viewMenu.addSeparator();
+        viewMenu.add(createLayerItem("Следы роботов", KeyEvent.VK_T, gameVisualizer::setTrailsVisible));
+        viewMenu.add(createLayerItem("Тепловая карта", KeyEvent.VK_H, gameVisualizer::setHeatmapVisible));
+        menuBar.add(viewMenu);
+        return menuBar;
+    }
+
+    /**
+     * Пункт меню, который показывает и прячет панель производительности
+     * @return пункт-переключатель
+     */
+    private JMenuItem createPerformanceOverlayItem()
+    {
+        JCheckBoxMenuItem overlayItem = new JCheckBoxMenuItem("Показатели производительности");
+        overlayItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0));
+        overlayItem.addActionListener((event) -> performanceOverlay.setVisible(overlayItem.isSelected()));
+        return overlayItem;
+    }
+
+    /**
+     * Подменю выбора частоты кадров этого окна
+     * @return подменю с вариантами частоты
+     */
+    private JMenu createFrameRateMenu()
+    {
+        JMenu frameRateMenu = new JMenu("Частота кадров");
+        ButtonGroup group = new ButtonGroup();
+        for (int frameRate : FRAME_RATES)
+        {
+            int framePeriod = 1000 / frameRate;
+            JRadioButtonMenuItem item = new JRadioButtonMenuItem(frameRate + " кадров/с",
+                    framePeriod == gameVisualizer.getFramePeriod());
+            item.addActionListener((event) -> gameVisualizer.setFramePeriod(framePeriod));
+            group.add(item);
+            frameRateMenu.add(item);
+        }
+        return frameRateMenu;
+    }
+
+    /**
+     * Пункт меню, который включает отрисовку сцены по плиткам в нескольких потоках
+     * @return пункт-переключатель
+     */
+    private JMenuItem createTiledRenderingItem()
+    {
+        JCheckBoxMenuItem tiledItem = new JCheckBoxMenuItem("Параллельная отрисовка",
+                gameVisualizer.isTiledRendering());
+        tiledItem.setMnemonic(KeyEvent.VK_P);
+        tiledItem.addActionListener((event) -> gameVisualizer.setTiledRendering(tiledItem.isSelected()));
+        return tiledItem;
+    }
+
+    /**
+     * Пункт меню, который показывает и прячет слой истории движения
+     * @param title название слоя
+     * @param mnemonic горячая клавиша
+     * @param toggle что сделать при переключении
+     * @return пункт-переключатель
+     */
+    private static JMenuItem createLayerItem(String title, int mnemonic, Consumer<Boolean> toggle)
+    {
+        JCheckBoxMenuItem layerItem = new JCheckBoxMenuItem(title);
+        layerItem.setMnemonic(mnemonic);
+        layerItem.addActionListener((event) -> toggle.accept(layerItem.isSelected()));
+        return layerItem;
+    }
 }
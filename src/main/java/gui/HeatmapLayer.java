@@ -0,0 +1,167 @@
+package gui;
+
+import model.World;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Тепловая карта: сколько шагов роботы провели в каждой клетке поля
+ * Карта копится в картинке, и на каждом шаге меняются только клетки
+ * нового отрезка пути каждого робота, а отрисовка - это одно копирование
+ * картинки, поэтому ни шаг, ни кадр не дорожают со временем
+ * Карта покрывает квадрат мира от (0, 0) размером GRID_SIZE * CELL_SIZE
+ */
+public class HeatmapLayer extends WorldLayer
+{
+    //размер клетки в единицах мира
+    private static final int CELL_SIZE = 2;
+    //число клеток по каждой стороне
+    private static final int GRID_SIZE = 1024;
+    private static final int[] PALETTE = createPalette();
+
+    //время в клетке, только поток модели
+    private final int[] counts = new int[GRID_SIZE * GRID_SIZE];
+    private final BufferedImage image = new BufferedImage(GRID_SIZE, GRID_SIZE, BufferedImage.TYPE_INT_ARGB);
+    //пиксели картинки, по одному на клетку
+    private final int[] pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+
+    //клетки роботов после прошлого шага, только поток модели
+    private int[] lastCellX = new int[0];
+    private int[] lastCellY = new int[0];
+
+    @Override
+    protected void restart(World world)
+    {
+        int robotCount = world.getRobotCount();
+        if (lastCellX.length < robotCount)
+        {
+            lastCellX = new int[robotCount];
+            lastCellY = new int[robotCount];
+        }
+        for (int i = 0; i < robotCount; i++)
+        {
+            lastCellX[i] = cellOf(world.getRobotX(i));
+            lastCellY[i] = cellOf(world.getRobotY(i));
+        }
+    }
+
+    @Override
+    protected void record(World world)
+    {
+        int robotCount = world.getRobotCount();
+        if (robotCount > lastCellX.length)
+        {
+            //появились новые роботы, для старых теряется один шаг
+            restart(world);
+            return;
+        }
+        for (int i = 0; i < robotCount; i++)
+        {
+            int cellX = cellOf(world.getRobotX(i));
+            int cellY = cellOf(world.getRobotY(i));
+            rasterize(lastCellX[i], lastCellY[i], cellX, cellY);
+            lastCellX[i] = cellX;
+            lastCellY[i] = cellY;
+        }
+    }
+
+    @Override
+    public void paint(Graphics2D g, int robotCount)
+    {
+        g.drawImage(image, 0, 0, GRID_SIZE * CELL_SIZE, GRID_SIZE * CELL_SIZE, null);
+    }
+
+    /**
+     * Отмечает клетки отрезка по алгоритму Брезенхэма
+     * Начальная клетка уже отмечена на прошлом шаге, поэтому пропускается,
+     * если только робот не остался в ней же
+     */
+    private void rasterize(int x0, int y0, int x1, int y1)
+    {
+        if (x0 == x1 && y0 == y1)
+        {
+            mark(x1, y1);
+            return;
+        }
+        int dx = Math.abs(x1 - x0);
+        int dy = -Math.abs(y1 - y0);
+        int sx = x0 < x1 ? 1 : -1;
+        int sy = y0 < y1 ? 1 : -1;
+        int error = dx + dy;
+        int x = x0;
+        int y = y0;
+        while (x != x1 || y != y1)
+        {
+            int doubled = 2 * error;
+            if (doubled >= dy)
+            {
+                error += dy;
+                x += sx;
+            }
+            if (doubled <= dx)
+            {
+                error += dx;
+                y += sy;
+            }
+            mark(x, y);
+        }
+    }
+
+    private void mark(int x, int y)
+    {
+        if (x < 0 || y < 0 || x >= GRID_SIZE || y >= GRID_SIZE)
+        {
+            return;
+        }
+        int index = y * GRID_SIZE + x;
+        if (counts[index] < Integer.MAX_VALUE)
+        {
+            counts[index]++;
+        }
+        pixels[index] = PALETTE[level(counts[index])];
+    }
+
+    /**
+     * номер клетки по координате, клетки за пределами карты отбрасываются при отметке
+     * @param coordinate координата мира
+     * @return номер клетки
+     */
+    private static int cellOf(double coordinate)
+    {
+        double cell = Math.floor(coordinate / CELL_SIZE);
+        return (int)Math.max(-1, Math.min(GRID_SIZE, cell));
+    }
+
+    /**
+     * яркость клетки растет логарифмически, чтобы было видно и редкие, и частые места
+     * @param count сколько шагов роботы провели в клетке
+     * @return номер цвета в палитре
+     */
+    private static int level(int count)
+    {
+        int bits = 32 - Integer.numberOfLeadingZeros(count);
+        return Math.min(PALETTE.length - 1, 40 + bits * 14);
+    }
+
+    /**
+     * палитра от прозрачного синего через красный к желтому
+     * @return цвета ARGB
+     */
+    private static int[] createPalette()
+    {
+        //нулевой цвет прозрачный, им остаются клетки, где роботов не было
+        int[] palette = new int[256];
+        for (int i = 1; i < palette.length; i++)
+        {
+            double t = i / 255.0;
+            int alpha = (int)(60 + 170 * t);
+            int red = t < 0.5 ? (int)(510 * t) : 255;
+            int green = t < 0.5 ? 0 : (int)(510 * (t - 0.5));
+            int blue = t < 0.5 ? (int)(255 * (1 - 2 * t)) : 0;
+            palette[i] = alpha << 24 | red << 16 | green << 8 | blue;
+        }
+        return palette;
+    }
+}
@@ -2,10 +2,12 @@ package gui;
 
 import log.LogChangeListener;
 import log.LogEntry;
+import log.LogLevel;
 import log.LogWindowSource;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Окно логов, которое находится внутри главного окна
@@ -19,6 +21,15 @@ public class LogWindow extends JInternalFrame implements LogChangeListener
     private LogWindowSource logSource;
     //полк для ввода содержимого лога
     private TextArea logContent;
+    //номер первого сообщения, которого еще нет в текстовом поле
+    private long shownSequence;
+    //сколько строк сейчас в текстовом поле
+    private int shownLines;
+    //обновление уже запрошено и ждет в очереди событий
+    private final AtomicBoolean updatePending = new AtomicBoolean();
+    private final Runnable updateTask = this::updateLogContent;
+    //запись, в которую копируются сообщения из источника
+    private final LogEntry entry = new LogEntry(LogLevel.Trace, "");
 
     /**
      * Конструуктор окна логов
@@ -51,17 +62,50 @@ public class LogWindow extends JInternalFrame implements LogChangeListener
 
     /**
      * Обновляет содержимое текствого поля
-     * Формирует строку из всех записей
+     * Дописывает только новые записи, целиком поле собирается заново,
+     * лишь когда часть новых записей уже вытеснена из источника или
+     * в поле накопилось вдвое больше строк, чем хранит источник
      */
     private void updateLogContent()
+    {
+        updatePending.set(false);
+        long total = logSource.totalCount();
+        if (shownSequence < logSource.firstSequence()
+                || shownLines + (total - shownSequence) > 2L * logSource.size())
+        {
+            rebuildLogContent();
+            return;
+        }
+        for (; shownSequence < total; shownSequence++)
+        {
+            if (logSource.copyEntry(shownSequence, entry))
+            {
+                logContent.append(entry.getMessage());
+                logContent.append("\n");
+                shownLines++;
+            }
+        }
+    }
+
+    /**
+     * Собирает текстовое поле заново из всех хранимых записей
+     */
+    private void rebuildLogContent()
     {
         //StringBuilder - это типо "черновик", где мы собираем текст
         StringBuilder content = new StringBuilder();
+        long total = logSource.totalCount();
+        shownLines = 0;
        //короче собираем каждый лог в единую строку с энторами - "черновик"
-        for (LogEntry entry : logSource.all())
+        for (long sequence = logSource.firstSequence(); sequence < total; sequence++)
         {
-            content.append(entry.getMessage()).append("\n");
+            if (logSource.copyEntry(sequence, entry))
+            {
+                content.append(entry.getMessage()).append("\n");
+                shownLines++;
+            }
         }
+        shownSequence = total;
         //устанавливаем собранный текст в текстовое поле, изначально превратив ее в строку
         logContent.setText(content.toString());
         logContent.invalidate(); //помечаем, что содержимое устарело, нужно обновить
@@ -76,6 +120,21 @@ public class LogWindow extends JInternalFrame implements LogChangeListener
     public void onLogChanged()
     {
         //просим Swing: "Обнови интерфейс, когда будет удобно"
-        EventQueue.invokeLater(this::updateLogContent);
+        //если просьба уже в очереди, новые записи подхватятся ею же
+        if (updatePending.compareAndSet(false, true))
+        {
+            EventQueue.invokeLater(updateTask);
+        }
+    }
+
+    /**
+     * При закрытии окно отписывается от источника, иначе источник
+     * продолжал бы держать его в памяти
+     */
+    @Override
+    public void dispose()
+    {
+        logSource.unregisterListener(this);
+        super.dispose();
     }
 }
@@ -1,12 +1,24 @@
 package gui;
 
 import log.Logger;
+import model.AssignmentBenchmark;
+import model.AssignmentCheck;
+import model.SteeringBenchmark;
+import model.SteeringMode;
+import model.World;
+import model.WorldScheduler;
+import perf.StartupProfiler;
+import telemetry.TelemetryServer;
 
 import javax.swing.*;
+import javax.swing.event.InternalFrameAdapter;
+import javax.swing.event.InternalFrameEvent;
 import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Что требуется сделать:
@@ -23,12 +35,35 @@ public class MainApplicationFrame extends JFrame
 {
     //Главное окно для размещения внутренних окон (JInternalFrame)
     private final JDesktopPane desktopPane = new JDesktopPane();
+    //общий мир для всех игровых окон и единственный таймер его шагов
+    private final World world = new World();
+    private final WorldScheduler worldScheduler = new WorldScheduler(world);
+    //общие для всех игровых окон слои истории движения
+    private final TrailLayer trailLayer = new TrailLayer();
+    private final HeatmapLayer heatmapLayer = new HeatmapLayer();
+    //сервер телеметрии, null если он не включен свойством robots.telemetry
+    private final TelemetryServer telemetryServer =
+            TelemetryServer.fromSystemProperty(world, Logger.getDefaultLogSource());
+    //сколько игровых окон уже создано, нужно для сдвига новых окон
+    private int gameWindowCount;
+    //сколько игровых окон сейчас на экране, модель шагается только пока они есть
+    private int visibleGameWindows;
 
     /**
      * Конструктор главного окна, типа рабочего стола, где все последующие окна будут относительно "фиксированы" на нем
      * Инициализирует размеры, создает окна лога и игры с определенным отсупом и устанавливает меню
      */
     public MainApplicationFrame() {
+        this(false);
+    }
+
+    /**
+     * Конструктор главного окна
+     * При быстром запуске создается только пустой рабочий стол, а внутренние окна
+     * и меню достраиваются в {@link #completeStartup(CompletableFuture)} уже после показа окна
+     * @param fastStartup отложить создание внутренних окон и меню
+     */
+    public MainApplicationFrame(boolean fastStartup) {
         //Make the big window be indented 50 pixels from each edge
         //of the screen.
         int inset = 50; //отступ от краев экрана относительно главного окна
@@ -38,16 +73,17 @@ public class MainApplicationFrame extends JFrame
             screenSize.height - inset*2);
 
         setContentPane(desktopPane);
+        world.addStepListener(trailLayer);
+        world.addStepListener(heatmapLayer);
 
-        //Создание и добавление окон
-        LogWindow logWindow = createLogWindow();
-        addWindow(logWindow);
-
-        GameWindow gameWindow = new GameWindow();
-        gameWindow.setSize(400,  400);
-        addWindow(gameWindow);
-
-        setJMenuBar(generateMenuBar()); //Создание менюшки
+        startTelemetry();
+        if (!fastStartup)
+        {
+            //Создание и добавление окон
+            addLogWindow();
+            addGameWindow();
+            addMenuBar();
+        }
         setDefaultCloseOperation(DO_NOTHING_ON_CLOSE); //временно отключаем автозакрытие, не генерирует swing событие на закрытие
         addWindowListener(new WindowAdapter() {//вот тут перехватываем событие
             @Override
@@ -57,6 +93,80 @@ public class MainApplicationFrame extends JFrame
         });
     }
 
+    /**
+     * Достраивает главное окно при быстром запуске
+     * Каждый шаг идет отдельным событием, чтобы окно успевало отрисоваться
+     * и реагировать на пользователя между шагами
+     * Оформление ставится, только когда оно загрузится в фоне, и не раньше,
+     * чем построены окна, поэтому поток событий его не ждет
+     * @param lookAndFeel оформление, которое готовится в фоне, или null
+     */
+    public void completeStartup(CompletableFuture<LookAndFeel> lookAndFeel)
+    {
+        EventQueue.invokeLater(this::addMenuBar);
+        EventQueue.invokeLater(this::addGameWindow);
+        EventQueue.invokeLater(this::addLogWindow);
+        if (lookAndFeel != null)
+        {
+            lookAndFeel.whenComplete((loaded, error) -> EventQueue.invokeLater(() -> {
+                if (error != null)
+                {
+                    Logger.error("Не удалось загрузить оформление: " + error);
+                    return;
+                }
+                setLookAndFeel(loaded);
+                StartupProfiler.phase("оформление Nimbus");
+            }));
+        }
+    }
+
+    /**
+     * Запускает сервер телеметрии, если он включен
+     */
+    private void startTelemetry()
+    {
+        if (telemetryServer == null)
+        {
+            return;
+        }
+        try
+        {
+            telemetryServer.start();
+        }
+        catch (IOException e)
+        {
+            Logger.error("Не удалось запустить телеметрию: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Создает и показывает окно лога
+     */
+    private void addLogWindow()
+    {
+        addWindow(createLogWindow());
+        StartupProfiler.phase("окно протокола");
+    }
+
+    /**
+     * Создает и показывает первое игровое окно
+     */
+    private void addGameWindow()
+    {
+        addWindow(createGameWindow());
+        StartupProfiler.phase("игровое окно");
+    }
+
+    /**
+     * Создает и устанавливает меню
+     */
+    private void addMenuBar()
+    {
+        setJMenuBar(generateMenuBar()); //Создание менюшки
+        revalidate();
+        StartupProfiler.phase("меню");
+    }
+
     /**
      * Создает окно лога
      * @return окно лога
@@ -72,6 +182,42 @@ public class MainApplicationFrame extends JFrame
         return logWindow;
     }
 
+    /**
+     * Создает еще одно окно игры для общего мира
+     * Новое окно добавляет только стоимость отрисовки, модель шагается одна
+     * Модель запускается, когда на экране появляется первое игровое окно,
+     * и останавливается, когда закрыто последнее
+     * @return окно игры
+     */
+    protected GameWindow createGameWindow()
+    {
+        GameWindow gameWindow = new GameWindow(world, trailLayer, heatmapLayer);
+        int shift = 30 * gameWindowCount++;
+        gameWindow.setLocation(320 + shift, 10 + shift);
+        gameWindow.setSize(400,  400);
+        gameWindow.addInternalFrameListener(new InternalFrameAdapter()
+        {
+            @Override
+            public void internalFrameOpened(InternalFrameEvent e)
+            {
+                if (visibleGameWindows++ == 0)
+                {
+                    worldScheduler.start();
+                }
+            }
+
+            @Override
+            public void internalFrameClosed(InternalFrameEvent e)
+            {
+                if (--visibleGameWindows == 0)
+                {
+                    worldScheduler.stop();
+                }
+            }
+        });
+        return gameWindow;
+    }
+
     /**
      * Добавляет внутреннее окно на главное окно
      * @param frame
@@ -92,6 +238,8 @@ public class MainApplicationFrame extends JFrame
 
        //сборка меню (верхней строки) из под менюшек
         menuBar.add(createLookAndFeelMenu()); //создание меню (раздела) "Режим отображения"
+        menuBar.add(createWindowMenu()); //создание меню (раздела) "Окна"
+        menuBar.add(createModelMenu()); //создание меню (раздела) "Модель"
         menuBar.add(createTestMenu()); //создание меню (раздела) "Тесты"
         menuBar.add(createExitMenu()); //создание меню "Выход из приложения"
         return menuBar;
@@ -141,6 +289,10 @@ public class MainApplicationFrame extends JFrame
         );
 
         if (result == JOptionPane.YES_OPTION) {
+            worldScheduler.stop();
+            if (telemetryServer != null) {
+                telemetryServer.stop();
+            }
             dispose();
             System.exit(0);
         }
@@ -193,6 +345,63 @@ public class MainApplicationFrame extends JFrame
         return crossplatformLookAndFeel;
     }
 
+    /**
+     * Метод создания меню окон
+     * @return windowMenu - меню окон
+     */
+    private JMenu createWindowMenu(){
+        JMenu windowMenu = new JMenu("Окна");
+        windowMenu.setMnemonic(KeyEvent.VK_O);
+        windowMenu.getAccessibleContext().setAccessibleDescription(
+                "Открытие дополнительных окон");
+
+        //еще одно окно для того же мира, со своей камерой и частотой кадров
+        JMenuItem newGameWindowItem = new JMenuItem("Новое игровое поле", KeyEvent.VK_N);
+        newGameWindowItem.addActionListener((event) -> {
+            addWindow(createGameWindow());
+        });
+        windowMenu.add(newGameWindowItem);
+        return windowMenu;
+    }
+
+    /**
+     * Метод создания меню настроек модели
+     * @return modelMenu - меню модели
+     */
+    private JMenu createModelMenu(){
+        JMenu modelMenu = new JMenu("Модель");
+        modelMenu.setMnemonic(KeyEvent.VK_M);
+        modelMenu.getAccessibleContext().setAccessibleDescription(
+                "Настройки общего мира");
+
+        //выбор регулятора, которым роботы поворачивают к цели
+        ButtonGroup steeringGroup = new ButtonGroup();
+        for (SteeringMode mode : SteeringMode.values())
+        {
+            JRadioButtonMenuItem steeringItem = new JRadioButtonMenuItem(mode.title(),
+                    mode == world.getSteeringMode());
+            steeringItem.addActionListener((event) -> {
+                world.setSteeringMode(mode);
+                Logger.debug("Регулятор: " + mode.title());
+            });
+            steeringGroup.add(steeringItem);
+            modelMenu.add(steeringItem);
+        }
+        return modelMenu;
+    }
+
+    /**
+     * Запускает долгую тестовую команду в отдельном потоке, чтобы не замирал интерфейс
+     * @param name имя потока
+     * @param task команда
+     */
+    private static void runInBackground(String name, Runnable task)
+    {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
     /**
      * Метод создания тестового меню
      * @return testMenu - тестовое меню
@@ -210,6 +419,55 @@ public class MainApplicationFrame extends JFrame
             Logger.debug("Новая строка");
         });
         testMenu.add(addLogMessageItem);
+
+        //сравнение регуляторов по числу шагов до цели, итоги пишутся в лог
+        JMenuItem steeringBenchmarkItem = new JMenuItem("Сравнить регуляторы", KeyEvent.VK_R);
+        steeringBenchmarkItem.addActionListener((event) -> {
+            runInBackground("steering benchmark", SteeringBenchmark::logComparison);
+        });
+        testMenu.add(steeringBenchmarkItem);
+
+        //проверка, что горячие пути не выделяют память
+        JMenuItem allocationCheckItem = new JMenuItem("Проверить выделение памяти", KeyEvent.VK_A);
+        allocationCheckItem.addActionListener((event) -> {
+            runInBackground("allocation check", AllocationCheck::runAndLog);
+        });
+        testMenu.add(allocationCheckItem);
+
+        //шаг модели не должен дорожать от числа окон игры
+        JMenuItem viewScalingItem = new JMenuItem("Проверить шаг при 1 и 8 окнах", KeyEvent.VK_V);
+        viewScalingItem.addActionListener((event) -> {
+            runInBackground("view scaling check", ViewScalingCheck::runAndLog);
+        });
+        testMenu.add(viewScalingItem);
+
+        //сравнение отрисовки по плиткам с обычной и замер времени кадра
+        JMenuItem tileRenderCheckItem = new JMenuItem("Проверить и замерить отрисовку по плиткам", KeyEvent.VK_P);
+        tileRenderCheckItem.addActionListener((event) -> {
+            runInBackground("tile render check", TileRenderCheck::runAndLog);
+        });
+        testMenu.add(tileRenderCheckItem);
+
+        //группа роботов, которым цели из очереди раздаются аукционом
+        JMenuItem fleetItem = new JMenuItem("Добавить 1000 роботов и целей", KeyEvent.VK_F);
+        fleetItem.addActionListener((event) -> {
+            AssignmentBenchmark.populate(world, 1000);
+        });
+        testMenu.add(fleetItem);
+
+        //замер времени назначения целей 1000 роботам, итоги пишутся в лог
+        JMenuItem assignmentBenchmarkItem = new JMenuItem("Замерить назначение целей", KeyEvent.VK_G);
+        assignmentBenchmarkItem.addActionListener((event) -> {
+            runInBackground("assignment benchmark", AssignmentBenchmark::logTiming);
+        });
+        testMenu.add(assignmentBenchmarkItem);
+
+        //сравнение дорешивания назначения с точным решением, итоги пишутся в лог
+        JMenuItem assignmentCheckItem = new JMenuItem("Проверить качество назначения", KeyEvent.VK_Q);
+        assignmentCheckItem.addActionListener((event) -> {
+            runInBackground("assignment check", AssignmentCheck::runAndLog);
+        });
+        testMenu.add(assignmentCheckItem);
         return testMenu;
     }
 
@@ -231,4 +489,22 @@ public class MainApplicationFrame extends JFrame
             // just ignore
         }
     }
+
+    /**
+     * Устанавливает уже созданное оформление
+     * при ошибке действия не предусмотрены
+     * @param lookAndFeel оформление
+     */
+    private void setLookAndFeel(LookAndFeel lookAndFeel)
+    {
+        try
+        {
+            UIManager.setLookAndFeel(lookAndFeel);
+            SwingUtilities.updateComponentTreeUI(this);
+        }
+        catch (UnsupportedLookAndFeelException e)
+        {
+            // just ignore
+        }
+    }
 }
@@ -0,0 +1,112 @@
+package gui;
+
+import perf.PerformanceMonitor;
+import perf.PerformanceSample;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Прозрачная панель поверх игрового поля с показателями производительности:
+ * кадры и шаги модели в секунду, 99-й процентиль шага, ожидание кадра
+ * в очереди событий (вместо глубины очереди) и пропущенные кадры
+ * Пока панель видна и лежит в окне на экране, замеры в PerformanceMonitor включены
+ */
+public class PerformanceOverlay extends JComponent
+{
+    //как часто обновлять текст на панели, мс
+    private static final int REFRESH_PERIOD = 500;
+
+    private final Timer refreshTimer = new Timer(REFRESH_PERIOD, (event) -> repaint());
+    private boolean monitoring;
+
+    public PerformanceOverlay()
+    {
+        setOpaque(false);
+        setVisible(false);
+    }
+
+    /**
+     * Показывает или прячет панель, вместе с ней включает или выключает замеры
+     * @param visible показывать ли панель
+     */
+    @Override
+    public void setVisible(boolean visible)
+    {
+        super.setVisible(visible);
+        updateMonitoring();
+    }
+
+    /**
+     * Замеры нужны, только пока панель видна и окно на экране
+     */
+    private void updateMonitoring()
+    {
+        boolean needed = isVisible() && isDisplayable();
+        if (needed && !monitoring)
+        {
+            PerformanceMonitor.acquire();
+            refreshTimer.start();
+            monitoring = true;
+        }
+        else if (!needed && monitoring)
+        {
+            refreshTimer.stop();
+            PerformanceMonitor.release();
+            monitoring = false;
+        }
+    }
+
+    /**
+     * Окно снова на экране (например, развернуто из значка), замеры
+     * возобновляются, если панель включена
+     */
+    @Override
+    public void addNotify()
+    {
+        super.addNotify();
+        updateMonitoring();
+    }
+
+    /**
+     * При закрытии или сворачивании окна замеры отпускаются, а сама панель
+     * остается включенной, чтобы совпадать с пунктом меню
+     */
+    @Override
+    public void removeNotify()
+    {
+        super.removeNotify();
+        updateMonitoring();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g)
+    {
+        PerformanceSample sample = PerformanceMonitor.latestSample();
+        String[] lines = {
+                String.format("FPS: %.1f", sample.getFramesPerSecond()),
+                String.format("TPS: %.1f", sample.getTicksPerSecond()),
+                String.format("Шаг p99: %.3f мс", sample.getTickP99() / 1e6),
+                String.format("Отрисовка p99: %.3f мс", sample.getPaintP99() / 1e6),
+                String.format("Опоздание таймера p99: %.1f мс", sample.getLatenessP99() / 1e6),
+                String.format("Ожидание в очереди событий p99: %.1f мс", sample.getDispatchP99() / 1e6),
+                String.format("Пропущено кадров: %d (всего %d)",
+                        sample.getDroppedFrames(), sample.getTotalDroppedFrames())
+        };
+        FontMetrics metrics = g.getFontMetrics();
+        int lineHeight = metrics.getHeight();
+        int width = 0;
+        for (String line : lines)
+        {
+            width = Math.max(width, metrics.stringWidth(line));
+        }
+        //полупрозрачная подложка, чтобы текст читался поверх робота
+        g.setColor(new Color(0, 0, 0, 160));
+        g.fillRect(4, 4, width + 8, lineHeight * lines.length + 6);
+        g.setColor(Color.WHITE);
+        for (int i = 0; i < lines.length; i++)
+        {
+            g.drawString(lines[i], 8, 6 + metrics.getAscent() + i * lineHeight);
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package gui;
 
 import java.awt.Frame;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 
+import javax.swing.LookAndFeel;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
+import javax.swing.plaf.nimbus.NimbusLookAndFeel;
+
+import perf.StartupProfiler;
 
 /**
  * Класс для запуска приложения
@@ -13,9 +21,21 @@ public class RobotsProgram
 {
     /**
      * Запускает главное окно, с установкой стиля
+     * С аргументом --fast-startup (или -Drobots.fastStartup=true) главное окно
+     * показывается сразу, оформление готовится в фоне, а внутренние окна и меню
+     * достраиваются уже после первого кадра
+     * Длительность каждой фазы запуска пишется в лог
      * @param args
      */
     public static void main(String[] args) {
+      StartupProfiler.start();
+      boolean fastStartup = Boolean.getBoolean("robots.fastStartup")
+              || Arrays.asList(args).contains("--fast-startup");
+      CompletableFuture<LookAndFeel> lookAndFeel = null;
+      if (fastStartup) {
+          //Nimbus долго загружается, поэтому готовим его в фоне, а ставим после показа окна
+          lookAndFeel = CompletableFuture.supplyAsync(NimbusLookAndFeel::new);
+      } else {
       try {
 
           //NimbusLookAndFeel - механизм из Java Swing, типо набор плагинов, который нужны для оформления
@@ -28,14 +48,27 @@ public class RobotsProgram
       } catch (Exception e) {
         e.printStackTrace();
       }
+      StartupProfiler.phase("оформление Nimbus");
+      }
 
+      CompletableFuture<LookAndFeel> deferredLookAndFeel = lookAndFeel;
         /**
          * Запуск приложения в потоке с обработкой событий
          */
       SwingUtilities.invokeLater(() -> {
-        MainApplicationFrame frame = new MainApplicationFrame();
+        MainApplicationFrame frame = new MainApplicationFrame(fastStartup);
+        StartupProfiler.phase("главное окно");
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                StartupProfiler.firstFrame(); //замер времени до первого кадра
+            }
+        });
         frame.pack();
         frame.setVisible(true); //отображкние окна
         frame.setExtendedState(Frame.MAXIMIZED_BOTH); //разворачивание на весь экран
+        if (fastStartup) {
+            frame.completeStartup(deferredLookAndFeel);
+        }
       });
     }}
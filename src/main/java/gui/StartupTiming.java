@@ -0,0 +1,77 @@
+package gui;
+
+import model.World;
+
+import javax.swing.LookAndFeel;
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+import javax.swing.plaf.nimbus.NimbusLookAndFeel;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Замер работы, которая при запуске идет до первого кадра, в обоих режимах
+ * Без экрана главное окно не показать, поэтому повторяется то же, что
+ * делают RobotsProgram и MainApplicationFrame до показа: в обычном режиме
+ * установка Nimbus и создание игрового окна, в быстром - только запуск
+ * загрузки оформления в фоне; отдельно пишется, когда быстрый режим
+ * достроил окно и поставил оформление
+ * Окно протокола не входит в замер: его TextArea без экрана не создать
+ * Холодный запуск важен, поэтому каждый режим меряется в своей JVM:
+ * <pre>
+ * java -Djava.awt.headless=true -cp target/classes gui.StartupTiming
+ * java -Djava.awt.headless=true -cp target/classes gui.StartupTiming --fast-startup
+ * </pre>
+ */
+public final class StartupTiming
+{
+    private StartupTiming()
+    {
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        long start = System.nanoTime();
+        boolean fast = args.length > 0 && args[0].equals("--fast-startup");
+        CompletableFuture<LookAndFeel> lookAndFeel = null;
+        if (fast)
+        {
+            lookAndFeel = CompletableFuture.supplyAsync(NimbusLookAndFeel::new);
+        }
+        else
+        {
+            UIManager.setLookAndFeel(new NimbusLookAndFeel());
+        }
+        World world = new World();
+        SwingUtilities.invokeAndWait(() -> {
+            if (!fast)
+            {
+                createWindow(world);
+            }
+        });
+        System.out.printf("%s: до первого кадра %.1f мс%n",
+                fast ? "быстрый запуск" : "обычный запуск", (System.nanoTime() - start) / 1e6);
+        if (fast)
+        {
+            SwingUtilities.invokeAndWait(() -> createWindow(world));
+            LookAndFeel loaded = lookAndFeel.get();
+            SwingUtilities.invokeAndWait(() -> {
+                try
+                {
+                    UIManager.setLookAndFeel(loaded);
+                }
+                catch (Exception e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            });
+            System.out.printf("быстрый запуск: окно и оформление готовы через %.1f мс%n",
+                    (System.nanoTime() - start) / 1e6);
+        }
+        System.exit(0);
+    }
+
+    private static void createWindow(World world)
+    {
+        new GameWindow(world, new TrailLayer(), new HeatmapLayer()).pack();
+    }
+}
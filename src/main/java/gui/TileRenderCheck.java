@@ -0,0 +1,170 @@
+package gui;
+
+import log.Logger;
+import model.World;
+import model.WorldSnapshot;
+
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Проверка, что отрисовка по плиткам совпадает с обычной до пикселя,
+ * и замер времени кадра в обоих режимах
+ * Сцены рисуются без экрана при нескольких положениях камеры, роботы
+ * нарочно лежат и на границах плиток, и за краем картинки
+ * Сравнение картинок запускается тестом TileRenderCheckTest при сборке,
+ * при расхождении сборка падает; замер долгий и ничего не проверяет,
+ * поэтому он запускается только из меню "Тесты" вместе со сравнением
+ */
+public final class TileRenderCheck
+{
+    private static final int WIDTH = 1000;
+    private static final int HEIGHT = 700;
+    private static final int CHECK_ROBOTS = 5_000;
+    private static final int TIMING_ROBOTS = 100_000;
+    private static final int TIMING_RUNS = 5;
+    private static final long SEED = 20240615L;
+
+    private TileRenderCheck()
+    {
+    }
+
+    /**
+     * Запуск из меню: сравнение и замер, результаты пишутся в лог
+     */
+    public static void runAndLog()
+    {
+        if (!run(Logger::debug))
+        {
+            Logger.error("Отрисовка по плиткам: картинки не совпали");
+        }
+        measure(Logger::debug);
+    }
+
+    /**
+     * Сравнивает режимы при разных камерах
+     * @param report куда писать результаты
+     * @return совпали ли все картинки
+     */
+    public static boolean run(Consumer<String> report)
+    {
+        World world = randomWorld(CHECK_ROBOTS);
+        TrailLayer trailLayer = new TrailLayer();
+        HeatmapLayer heatmapLayer = new HeatmapLayer();
+        world.addStepListener(trailLayer);
+        world.addStepListener(heatmapLayer);
+        GameVisualizer visualizer = new GameVisualizer(world, trailLayer, heatmapLayer);
+        visualizer.setTrailsVisible(true);
+        visualizer.setHeatmapVisible(true);
+        for (int i = 0; i < 200; i++)
+        {
+            world.step(10);
+        }
+        WorldSnapshot snapshot = world.snapshot();
+
+        boolean passed = true;
+        Camera camera = visualizer.getCamera();
+        //обычная камера, отдаление, приближение и дробный сдвиг
+        double[][] moves = {{1, 0, 0}, {0.37, 0, 0}, {2.5 / 0.37, 0, 0}, {1, 10.5, -3.25}};
+        for (double[] move : moves)
+        {
+            camera.zoom(move[0], WIDTH / 3.0, HEIGHT / 3.0);
+            camera.pan(move[1], move[2]);
+            AffineTransform transform = new AffineTransform();
+            camera.applyTo(transform);
+            int mismatches = countMismatches(visualizer, snapshot, transform);
+            passed &= mismatches == 0;
+            report.accept(String.format("Отрисовка по плиткам: масштаб %.2f, не совпало пикселей: %d",
+                    camera.getScale(), mismatches));
+        }
+        return passed;
+    }
+
+    /**
+     * Замеряет время кадра с большим числом роботов в обоих режимах
+     * Плитки рисуют столько потоков, сколько процессоров видит JVM,
+     * число можно задать флагом -XX:ActiveProcessorCount
+     * @param report куда писать результаты
+     */
+    public static void measure(Consumer<String> report)
+    {
+        WorldSnapshot crowded = randomWorld(TIMING_ROBOTS).snapshot();
+        GameVisualizer plain = new GameVisualizer(new World());
+        AffineTransform identity = new AffineTransform();
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        double single = medianMillis(() -> plain.renderScene(image, crowded, identity, false));
+        double tiled = medianMillis(() -> plain.renderScene(image, crowded, identity, true));
+        report.accept(String.format("Отрисовка %d роботов: обычная %.1f мс, по плиткам %.1f мс (потоков: %d)",
+                TIMING_ROBOTS, single, tiled, TileRenderer.WORKERS));
+        if (TileRenderer.WORKERS == 1)
+        {
+            report.accept("Отрисовка по плиткам: доступен один процессор, ускорения нет,"
+                    + " выигрыш только в том, что кадр рисуется вне потока событий");
+        }
+    }
+
+    /**
+     * Рисует сцену в обоих режимах и сравнивает пиксели
+     * @return число несовпавших пикселей
+     */
+    private static int countMismatches(GameVisualizer visualizer, WorldSnapshot snapshot, AffineTransform transform)
+    {
+        BufferedImage single = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        BufferedImage tiled = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        visualizer.renderScene(single, snapshot, transform, false);
+        visualizer.renderScene(tiled, snapshot, transform, true);
+        int[] expected = ((DataBufferInt)single.getRaster().getDataBuffer()).getData();
+        int[] actual = ((DataBufferInt)tiled.getRaster().getDataBuffer()).getData();
+        int mismatches = 0;
+        for (int i = 0; i < expected.length; i++)
+        {
+            if (expected[i] != actual[i])
+            {
+                mismatches++;
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Мир со случайными роботами, часть которых стоит ровно на границах плиток
+     * @param robots число роботов
+     * @return мир
+     */
+    private static World randomWorld(int robots)
+    {
+        Random random = new Random(SEED);
+        World world = new World();
+        world.setTargetPosition(WIDTH / 2.0, HEIGHT / 2.0);
+        for (int i = 1; i < robots; i++)
+        {
+            double x = random.nextDouble() * (WIDTH + 200) - 100;
+            double y = random.nextDouble() * (HEIGHT + 200) - 100;
+            if (i % 10 == 0)
+            {
+                x = random.nextInt(WIDTH / TileRenderer.TILE_SIZE + 1) * TileRenderer.TILE_SIZE;
+            }
+            world.addRobot(x, y, random.nextDouble() * 2 * Math.PI);
+        }
+        return world;
+    }
+
+    private static double medianMillis(Runnable render)
+    {
+        //первый прогон прогревает JIT
+        render.run();
+        double[] millis = new double[TIMING_RUNS];
+        for (int i = 0; i < TIMING_RUNS; i++)
+        {
+            long start = System.nanoTime();
+            render.run();
+            millis[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(millis);
+        return millis[TIMING_RUNS / 2];
+    }
+}
@@ -0,0 +1,315 @@
+package gui;
+
+import model.WorldSnapshot;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Параллельная отрисовка роботов по плиткам
+ * Картинка делится на квадратные плитки, в каждую рисуются все роботы,
+ * задевающие плитку, в том же порядке, что и при обычной отрисовке
+ * Роботы раскладываются по плиткам за один проход до начала отрисовки,
+ * так что каждая плитка перебирает только своих роботов, а не всех
+ * Отсечение по границе плитки в Java2D меняет растеризацию контуров у самой
+ * границы, поэтому плитка рисуется без отсечения в черновик того же размера,
+ * что и картинка, а обратно копируется только ее прямоугольник - так
+ * результат совпадает с обычной отрисовкой до пикселя
+ * Плитки разбирают потоки общего пула и сам вызывающий поток, так что
+ * отрисовка завершается, даже если все потоки пула заняты
+ */
+final class TileRenderer
+{
+    //сторона плитки в пикселях
+    static final int TILE_SIZE = 256;
+    //сколько потоков рисуют плитки
+    static final int WORKERS = Runtime.getRuntime().availableProcessors();
+    //полуось овала робота в единицах мира вместе с контуром
+    private static final double ROBOT_RADIUS = 16;
+    //запас в пикселях на округление при растеризации
+    private static final double PIXEL_MARGIN = 2;
+
+    //черновик каждого потока, пересоздается только при смене размера картинки
+    private static final ThreadLocal<BufferedImage> SCRATCH = new ThreadLocal<>();
+    //раскладка роботов по плиткам вызывающего потока, растет только при нехватке места
+    private static final ThreadLocal<Bins> BINS = ThreadLocal.withInitial(Bins::new);
+
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(WORKERS, task -> {
+        Thread thread = new Thread(task, "tile renderer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private TileRenderer()
+    {
+    }
+
+    /**
+     * Запускает задачу отрисовки в потоках пула
+     * @param task задача
+     */
+    static void execute(Runnable task)
+    {
+        POOL.execute(task);
+    }
+
+    /**
+     * Рисует всех роботов снимка, возвращается, когда все плитки готовы
+     * @param image картинка сцены, фон и слои в ней уже нарисованы
+     * @param transform преобразование камеры
+     * @param snapshot снимок мира
+     */
+    static void drawRobots(BufferedImage image, AffineTransform transform, WorldSnapshot snapshot)
+    {
+        Job job = new Job(image, transform, snapshot);
+        for (int i = 1; i < Math.min(WORKERS, job.tileCount); i++)
+        {
+            POOL.execute(job);
+        }
+        job.run();
+        job.await();
+    }
+
+    /**
+     * Черновик текущего потока для картинки такого размера и типа
+     * @param image картинка сцены
+     * @return черновик
+     */
+    private static BufferedImage scratchFor(BufferedImage image)
+    {
+        BufferedImage scratch = SCRATCH.get();
+        if (scratch == null || scratch.getWidth() != image.getWidth()
+                || scratch.getHeight() != image.getHeight() || scratch.getType() != image.getType())
+        {
+            scratch = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+            SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
+
+    /**
+     * Номера роботов, разложенные по плиткам: роботы плитки tile лежат
+     * в robots[start[tile]..start[tile + 1]) по возрастанию номера
+     */
+    private static final class Bins
+    {
+        private int[] start = new int[0];
+        private int[] robots = new int[0];
+        //экранные координаты роботов, считаются один раз на отрисовку
+        private double[] screenX = new double[0];
+        private double[] screenY = new double[0];
+    }
+
+    /**
+     * Одна отрисовка: потоки берут плитки по очереди, пока они не кончатся
+     */
+    private static final class Job implements Runnable
+    {
+        private final BufferedImage image;
+        private final AffineTransform transform;
+        private final WorldSnapshot snapshot;
+        private final int columns;
+        private final int rows;
+        private final int tileCount;
+        //радиус робота на экране
+        private final double margin;
+        private final AtomicInteger nextTile = new AtomicInteger();
+        private final CountDownLatch tilesLeft;
+        private final Bins bins;
+
+        Job(BufferedImage image, AffineTransform transform, WorldSnapshot snapshot)
+        {
+            this.image = image;
+            this.transform = transform;
+            this.snapshot = snapshot;
+            columns = (image.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+            rows = (image.getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+            tileCount = columns * rows;
+            tilesLeft = new CountDownLatch(tileCount);
+            double scale = Math.max(Math.abs(transform.getScaleX()) + Math.abs(transform.getShearX()),
+                    Math.abs(transform.getShearY()) + Math.abs(transform.getScaleY()));
+            margin = ROBOT_RADIUS * scale + PIXEL_MARGIN;
+            bins = BINS.get();
+            fillBins();
+        }
+
+        /**
+         * Раскладывает роботов по плиткам подсчетом: сначала число роботов
+         * в каждой плитке, потом сами номера, каждая плитка - по порядку
+         * Робот на стыке попадает во все плитки, которые задевает
+         */
+        private void fillBins()
+        {
+            int robotCount = snapshot.getRobotCount();
+            if (bins.start.length < tileCount + 1)
+            {
+                bins.start = new int[tileCount + 1];
+            }
+            if (bins.screenX.length < robotCount)
+            {
+                bins.screenX = new double[robotCount];
+                bins.screenY = new double[robotCount];
+            }
+            int[] start = bins.start;
+            Arrays.fill(start, 0, tileCount + 1, 0);
+            for (int i = 0; i < robotCount; i++)
+            {
+                int x = GameVisualizer.round(snapshot.getRobotX(i));
+                int y = GameVisualizer.round(snapshot.getRobotY(i));
+                bins.screenX[i] = transform.getScaleX() * x + transform.getShearX() * y + transform.getTranslateX();
+                bins.screenY[i] = transform.getShearY() * x + transform.getScaleY() * y + transform.getTranslateY();
+                //пока считаем роботов плитки в start[tile + 1]
+                visitTiles(i, false);
+            }
+            for (int tile = 0; tile < tileCount; tile++)
+            {
+                start[tile + 1] += start[tile];
+            }
+            if (bins.robots.length < start[tileCount])
+            {
+                bins.robots = new int[start[tileCount]];
+            }
+            //start[tile] служит курсором записи и после прохода указывает на конец плитки,
+            //то есть на начало следующей, поэтому затем сдвигается на одну плитку назад
+            for (int i = 0; i < robotCount; i++)
+            {
+                visitTiles(i, true);
+            }
+            System.arraycopy(start, 0, start, 1, tileCount);
+            start[0] = 0;
+        }
+
+        /**
+         * Проходит по плиткам, которые задевает робот, по возрастанию номера
+         * @param robot номер робота
+         * @param fill записать робота в плитки или только посчитать
+         */
+        private void visitTiles(int robot, boolean fill)
+        {
+            int[] start = bins.start;
+            double x = bins.screenX[robot];
+            double y = bins.screenY[robot];
+            //плитки, которые может задеть робот; NaN и бесконечности дают пустой диапазон
+            int firstColumn = (int) Math.max(0, Math.floor((x - margin) / TILE_SIZE) - 1);
+            int lastColumn = (int) Math.min(columns - 1, Math.floor((x + margin) / TILE_SIZE));
+            int firstRow = (int) Math.max(0, Math.floor((y - margin) / TILE_SIZE) - 1);
+            int lastRow = (int) Math.min(rows - 1, Math.floor((y + margin) / TILE_SIZE));
+            for (int row = firstRow; row <= lastRow; row++)
+            {
+                int top = row * TILE_SIZE;
+                int bottom = Math.min(top + TILE_SIZE, image.getHeight());
+                if (y + margin < top || y - margin > bottom)
+                {
+                    continue;
+                }
+                for (int column = firstColumn; column <= lastColumn; column++)
+                {
+                    int left = column * TILE_SIZE;
+                    int right = Math.min(left + TILE_SIZE, image.getWidth());
+                    if (x + margin < left || x - margin > right)
+                    {
+                        continue;
+                    }
+                    int tile = row * columns + column;
+                    if (fill)
+                    {
+                        bins.robots[start[tile]++] = robot;
+                    }
+                    else
+                    {
+                        start[tile + 1]++;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            int tile;
+            while ((tile = nextTile.getAndIncrement()) < tileCount)
+            {
+                try
+                {
+                    drawTile(tile);
+                }
+                finally
+                {
+                    tilesLeft.countDown();
+                }
+            }
+        }
+
+        /**
+         * Ждет плитки, которые еще рисуют другие потоки
+         */
+        void await()
+        {
+            boolean interrupted = false;
+            while (true)
+            {
+                try
+                {
+                    tilesLeft.await();
+                    break;
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void drawTile(int tile)
+        {
+            int left = (tile % columns) * TILE_SIZE;
+            int top = (tile / columns) * TILE_SIZE;
+            int right = Math.min(left + TILE_SIZE, image.getWidth());
+            int bottom = Math.min(top + TILE_SIZE, image.getHeight());
+            int from = bins.start[tile];
+            int to = bins.start[tile + 1];
+            //в пустой плитке уже все нарисовано
+            if (from == to)
+            {
+                return;
+            }
+            BufferedImage scratch = scratchFor(image);
+            Graphics2D g = scratch.createGraphics();
+            try
+            {
+                //фон и слои плитки из картинки сцены
+                g.drawImage(image, left, top, right, bottom, left, top, right, bottom, null);
+                for (int k = from; k < to; k++)
+                {
+                    int i = bins.robots[k];
+                    int x = GameVisualizer.round(snapshot.getRobotX(i));
+                    int y = GameVisualizer.round(snapshot.getRobotY(i));
+                    GameVisualizer.drawRobot(g, transform, x, y, snapshot.getRobotDirection(i));
+                }
+            }
+            finally
+            {
+                g.dispose();
+            }
+            Graphics2D out = image.createGraphics();
+            try
+            {
+                out.drawImage(scratch, left, top, right, bottom, left, top, right, bottom, null);
+            }
+            finally
+            {
+                out.dispose();
+            }
+        }
+    }
+}
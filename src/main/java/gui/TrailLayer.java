@@ -0,0 +1,109 @@
+package gui;
+
+import model.World;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Stroke;
+import java.awt.geom.Path2D;
+
+/**
+ * Следы роботов: для каждого робота кольцевой буфер последних положений
+ * Положение записывается раз в SAMPLE_PERIOD шагов, буфер фиксированной
+ * длины, поэтому отрисовка стоит одинаково, сколько бы ни шла игра
+ */
+public class TrailLayer extends WorldLayer
+{
+    //сколько положений помнит каждый робот
+    public static final int TRAIL_LENGTH = 64;
+    //через сколько шагов модели записывается положение
+    private static final int SAMPLE_PERIOD = 10;
+    private static final Color TRAIL_COLOR = new Color(128, 0, 128, 110);
+    private static final Stroke TRAIL_STROKE = new BasicStroke(1.5f);
+
+    //положения парами x, y: робот i занимает ячейки [i * TRAIL_LENGTH, (i + 1) * TRAIL_LENGTH),
+    //ячейка k - элементы 2 * k и 2 * k + 1; x и y лежат в одном массиве, чтобы
+    //читатель не мог взять новый массив x со старым y; массив заменяется
+    //целиком, поэтому читатель берет его в локальную переменную
+    private volatile float[] trail = new float[0];
+    //ячейка с самым свежим положением, общая для всех роботов
+    private volatile int head;
+    //шагов с последней записи, только поток модели
+    private int ticksSinceSample;
+
+    //путь для отрисовки одного следа, только поток событий
+    private final Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, TRAIL_LENGTH);
+
+    @Override
+    protected void restart(World world)
+    {
+        int robotCount = world.getRobotCount();
+        float[] points = trail.length >= 2 * robotCount * TRAIL_LENGTH
+                ? trail : new float[2 * robotCount * TRAIL_LENGTH];
+        for (int i = 0; i < robotCount; i++)
+        {
+            float x = (float)world.getRobotX(i);
+            float y = (float)world.getRobotY(i);
+            for (int k = 0; k < TRAIL_LENGTH; k++)
+            {
+                points[2 * (i * TRAIL_LENGTH + k)] = x;
+                points[2 * (i * TRAIL_LENGTH + k) + 1] = y;
+            }
+        }
+        trail = points;
+        ticksSinceSample = 0;
+    }
+
+    @Override
+    protected void record(World world)
+    {
+        if (++ticksSinceSample < SAMPLE_PERIOD)
+        {
+            return;
+        }
+        ticksSinceSample = 0;
+        int robotCount = world.getRobotCount();
+        if (2 * robotCount * TRAIL_LENGTH > trail.length)
+        {
+            //появились новые роботы, их следы начинаются с текущего места
+            restart(world);
+            return;
+        }
+        float[] points = trail;
+        int next = (head + 1) % TRAIL_LENGTH;
+        for (int i = 0; i < robotCount; i++)
+        {
+            points[2 * (i * TRAIL_LENGTH + next)] = (float)world.getRobotX(i);
+            points[2 * (i * TRAIL_LENGTH + next) + 1] = (float)world.getRobotY(i);
+        }
+        head = next;
+    }
+
+    //путь переиспользуется, поэтому окна рисуют слой по очереди
+    @Override
+    public synchronized void paint(Graphics2D g, int robotCount)
+    {
+        float[] points = trail;
+        int newest = head;
+        int count = Math.min(robotCount, points.length / (2 * TRAIL_LENGTH));
+        Stroke stroke = g.getStroke();
+        g.setColor(TRAIL_COLOR);
+        g.setStroke(TRAIL_STROKE);
+        for (int i = 0; i < count; i++)
+        {
+            int base = 2 * i * TRAIL_LENGTH;
+            //от самого старого положения к самому свежему
+            int k = (newest + 1) % TRAIL_LENGTH;
+            path.reset();
+            path.moveTo(points[base + 2 * k], points[base + 2 * k + 1]);
+            for (int step = 1; step < TRAIL_LENGTH; step++)
+            {
+                k = (k + 1) % TRAIL_LENGTH;
+                path.lineTo(points[base + 2 * k], points[base + 2 * k + 1]);
+            }
+            g.draw(path);
+        }
+        g.setStroke(stroke);
+    }
+}
@@ -0,0 +1,160 @@
+package gui;
+
+import log.Logger;
+import model.StepListener;
+import model.World;
+import model.WorldScheduler;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
+
+/**
+ * Проверка, что дополнительные окна игры добавляют только стоимость
+ * отрисовки: мир один и шагает только планировщик, поэтому при 8 окнах
+ * на экране мир делает ровно один шаг за такт планировщика
+ * Окна подключаются так же, как при показе, и их таймеры перерисовки идут,
+ * пока планировщик делает свои такты; шаги считает слушатель, а версия
+ * мира должна вырасти ровно на число тактов
+ * Стоимость отрисовки 1 и 8 окон только пишется в отчет, на результат
+ * она не влияет
+ * Запускается тестом ViewScalingCheckTest при сборке и из меню "Тесты";
+ * если окна шагают мир сами, сборка падает
+ */
+public final class ViewScalingCheck
+{
+    private static final int ROBOTS = 500;
+    private static final int VIEWS = 8;
+    private static final int TICKS = 40;
+    //пауза между тактами, за проверку таймеры окон успевают сработать много раз
+    private static final int TICK_PAUSE = 10;
+    private static final int WARMUP_FRAMES = 20;
+    private static final int FRAMES = 100;
+    private static final int SIZE = 200;
+
+    private ViewScalingCheck()
+    {
+    }
+
+    /**
+     * Запуск из меню, результаты пишутся в лог
+     */
+    public static void runAndLog()
+    {
+        if (!run(Logger::debug))
+        {
+            Logger.error("Окна игры: мир шагает не только планировщик");
+        }
+    }
+
+    /**
+     * Считает шаги мира при подключенных окнах и замеряет их отрисовку
+     * @param report куда писать результаты
+     * @return сделал ли мир ровно один шаг за такт
+     */
+    public static boolean run(Consumer<String> report)
+    {
+        boolean passed = countSteps(report);
+        report.accept(String.format("Окна игры: отрисовка всех окон за кадр %.3f мс при 1 окне, %.3f мс при %d окнах",
+                measurePaint(1) / 1e6, measurePaint(VIEWS) / 1e6, VIEWS));
+        return passed;
+    }
+
+    /**
+     * Мир с роботами, которые едут к далекой цели, поэтому сдвигаются на каждом шаге
+     */
+    private static World createWorld()
+    {
+        World world = new World();
+        for (int i = 1; i < ROBOTS; i++)
+        {
+            world.addRobot(i % 25 * 8, i / 25 * 8, i);
+        }
+        world.setTargetPosition(1_000_000, 1_000_000);
+        return world;
+    }
+
+    /**
+     * Делает такты планировщика при подключенных окнах
+     * @return совпало ли число шагов и рост версии с числом тактов
+     */
+    private static boolean countSteps(Consumer<String> report)
+    {
+        World world = createWorld();
+        int[] steps = new int[1];
+        StepListener counter = stepped -> steps[0]++;
+        world.addStepListener(counter);
+        WorldScheduler scheduler = new WorldScheduler(world);
+        GameVisualizer[] visualizers = new GameVisualizer[VIEWS];
+        for (int v = 0; v < VIEWS; v++)
+        {
+            visualizers[v] = new GameVisualizer(world);
+            visualizers[v].setSize(SIZE, SIZE);
+            visualizers[v].addNotify();
+        }
+        long startVersion = world.snapshot().getVersion();
+        try
+        {
+            for (int i = 0; i < TICKS; i++)
+            {
+                scheduler.tick();
+                Thread.sleep(TICK_PAUSE);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            for (GameVisualizer visualizer : visualizers)
+            {
+                visualizer.removeNotify();
+            }
+            world.removeStepListener(counter);
+        }
+        long versions = world.snapshot().getVersion() - startVersion;
+        boolean passed = steps[0] == TICKS && versions == TICKS;
+        report.accept(String.format("Окна игры: %d тактов при %d окнах, шагов мира %d, рост версии %d%s",
+                TICKS, VIEWS, steps[0], versions, passed ? "" : ", ожидалось по одному на такт"));
+        return passed;
+    }
+
+    /**
+     * @param views число визуализаторов
+     * @return средняя отрисовка всех окон за кадр, в наносекундах
+     */
+    private static double measurePaint(int views)
+    {
+        World world = createWorld();
+        GameVisualizer[] visualizers = new GameVisualizer[views];
+        BufferedImage[] screens = new BufferedImage[views];
+        Graphics2D[] graphics = new Graphics2D[views];
+        for (int v = 0; v < views; v++)
+        {
+            visualizers[v] = new GameVisualizer(world);
+            visualizers[v].setSize(SIZE, SIZE);
+            screens[v] = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+            graphics[v] = screens[v].createGraphics();
+        }
+        long paintTotal = 0;
+        for (int i = -WARMUP_FRAMES; i < FRAMES; i++)
+        {
+            world.step(10);
+            long start = System.nanoTime();
+            for (int v = 0; v < views; v++)
+            {
+                visualizers[v].paint(graphics[v]);
+            }
+            if (i >= 0)
+            {
+                paintTotal += System.nanoTime() - start;
+            }
+        }
+        for (Graphics2D g : graphics)
+        {
+            g.dispose();
+        }
+        return (double)paintTotal / FRAMES;
+    }
+}
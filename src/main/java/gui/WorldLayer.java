@@ -0,0 +1,82 @@
+package gui;
+
+import model.StepListener;
+import model.World;
+
+import java.awt.Graphics2D;
+
+/**
+ * Слой поверх мира, который копит историю движения роботов
+ * Слой общий для всех окон игры, а записывает историю только пока его
+ * показывает хотя бы одно окно; когда запись включается заново,
+ * история начинается с текущих позиций роботов
+ */
+public abstract class WorldLayer implements StepListener
+{
+    //сколько окон сейчас показывают слой
+    private int users;
+    private volatile boolean recording;
+    //запись только что включилась, историю надо начать заново
+    private volatile boolean restart = true;
+
+    /**
+     * Окно начинает показывать слой
+     */
+    public synchronized void acquire()
+    {
+        if (users++ == 0)
+        {
+            restart = true;
+            recording = true;
+        }
+    }
+
+    /**
+     * Окно перестает показывать слой
+     */
+    public synchronized void release()
+    {
+        if (users > 0 && --users == 0)
+        {
+            recording = false;
+        }
+    }
+
+    @Override
+    public final void onWorldStepped(World world)
+    {
+        if (!recording)
+        {
+            return;
+        }
+        if (restart)
+        {
+            restart = false;
+            restart(world);
+        }
+        else
+        {
+            record(world);
+        }
+    }
+
+    /**
+     * Начинает историю с текущих позиций роботов, вызывается в потоке модели
+     * @param world мир под блокировкой
+     */
+    protected abstract void restart(World world);
+
+    /**
+     * Дописывает в историю результат очередного шага, вызывается в потоке модели
+     * @param world мир под блокировкой
+     */
+    protected abstract void record(World world);
+
+    /**
+     * Рисует слой в мировых координатах, вызывается в потоке обработки событий
+     * или, если окно рисует по плиткам, в потоке отрисовки
+     * @param g графика с уже примененной камерой
+     * @param robotCount сколько роботов в снимке, который сейчас рисуется
+     */
+    public abstract void paint(Graphics2D g, int robotCount);
+}
@@ -11,6 +11,18 @@ public class LogEntry
         this.logLevel = logLevel;
     }
     
+    /**
+     * Перезаписывает запись, нужно источнику лога, который
+     * переиспользует записи вместо создания новых
+     * @param logLevel уровень
+     * @param strMessage текст
+     */
+    void update(LogLevel logLevel, String strMessage)
+    {
+        this.strMessage = strMessage;
+        this.logLevel = logLevel;
+    }
+
     public String getMessage()
     {
         return strMessage;
@@ -7,23 +7,31 @@ import java.util.Collections;
  * Что починить:
  * 1. Этот класс порождает утечку ресурсов (связанные слушатели оказываются
  * удерживаемыми в памяти)
- * 2. Этот класс хранит активные сообщения лога, но в такой реализации он 
- * их лишь накапливает. Надо же, чтобы количество сообщений в логе было ограничено 
- * величиной m_iQueueLength (т.е. реально нужна очередь сообщений 
- * ограниченного размера) 
+ *
+ * Хранит последние queueLength сообщений в кольцевом буфере, более старые
+ * перезаписываются. Записи в буфере создаются один раз и переиспользуются,
+ * поэтому добавление сообщения не выделяет память. У каждого сообщения есть
+ * сквозной номер, по которому читатели забирают только новые записи
  */
 public class LogWindowSource
 {
     private int queueLength;
     
-    private ArrayList<LogEntry> messages;
+    //кольцевой буфер записей, доступ под его монитором
+    private final LogEntry[] messages;
+    //сколько сообщений добавлено за все время, это же номер следующего
+    private long totalCount;
     private final ArrayList<LogChangeListener> listeners;
     private volatile LogChangeListener[] activeListeners;
     
     public LogWindowSource(int iQueueLength) 
     {
         queueLength = iQueueLength;
-        messages = new ArrayList<>(iQueueLength);
+        messages = new LogEntry[iQueueLength];
+        for (int i = 0; i < iQueueLength; i++)
+        {
+            messages[i] = new LogEntry(LogLevel.Trace, "");
+        }
         listeners = new ArrayList<>();
     }
     
@@ -47,8 +55,11 @@ public class LogWindowSource
     
     public void append(LogLevel logLevel, String strMessage)
     {
-        LogEntry entry = new LogEntry(logLevel, strMessage);
-        messages.add(entry);
+        synchronized (messages)
+        {
+            messages[(int)(totalCount % queueLength)].update(logLevel, strMessage);
+            totalCount++;
+        }
         LogChangeListener [] activeListeners = this.activeListeners;
         if (activeListeners == null)
         {
@@ -67,23 +78,88 @@ public class LogWindowSource
         }
     }
     
+    /**
+     * @return сколько сообщений сейчас хранится
+     */
     public int size()
     {
-        return messages.size();
+        synchronized (messages)
+        {
+            return (int)Math.min(totalCount, queueLength);
+        }
+    }
+
+    /**
+     * @return сколько сообщений добавлено за все время, номер следующего сообщения
+     */
+    public long totalCount()
+    {
+        synchronized (messages)
+        {
+            return totalCount;
+        }
     }
 
+    /**
+     * @return номер самого старого из хранимых сообщений
+     */
+    public long firstSequence()
+    {
+        synchronized (messages)
+        {
+            return Math.max(0, totalCount - queueLength);
+        }
+    }
+
+    /**
+     * Копирует сообщение с заданным номером, безопасно вызывать из любого потока
+     * @param sequence сквозной номер сообщения
+     * @param target запись, в которую копируется сообщение
+     * @return false, если сообщение уже вытеснено или еще не добавлено
+     */
+    public boolean copyEntry(long sequence, LogEntry target)
+    {
+        synchronized (messages)
+        {
+            if (sequence < totalCount - queueLength || sequence < 0 || sequence >= totalCount)
+            {
+                return false;
+            }
+            LogEntry entry = messages[(int)(sequence % queueLength)];
+            target.update(entry.getLevel(), entry.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Копии хранимых сообщений
+     * @param startFrom номер среди хранимых, 0 - самое старое
+     * @param count сколько сообщений
+     * @return список копий
+     */
     public Iterable<LogEntry> range(int startFrom, int count)
     {
-        if (startFrom < 0 || startFrom >= messages.size())
+        synchronized (messages)
         {
-            return Collections.emptyList();
+            int size = (int)Math.min(totalCount, queueLength);
+            if (startFrom < 0 || startFrom >= size)
+            {
+                return Collections.emptyList();
+            }
+            int indexTo = Math.min(startFrom + count, size);
+            long first = Math.max(0, totalCount - queueLength);
+            ArrayList<LogEntry> result = new ArrayList<>(indexTo - startFrom);
+            for (int i = startFrom; i < indexTo; i++)
+            {
+                LogEntry entry = messages[(int)((first + i) % queueLength)];
+                result.add(new LogEntry(entry.getLevel(), entry.getMessage()));
+            }
+            return result;
         }
-        int indexTo = Math.min(startFrom + count, messages.size());
-        return messages.subList(startFrom, indexTo);
     }
 
     public Iterable<LogEntry> all()
     {
-        return messages;
+        return range(0, queueLength);
     }
 }
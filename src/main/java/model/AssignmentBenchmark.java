@@ -0,0 +1,134 @@
+package model;
+
+import log.Logger;
+
+import java.util.Random;
+
+/**
+ * Замер времени назначения целей для группы роботов
+ * Роботы и цели случайно разбросаны по полю, сначала назначение решается
+ * целиком, потом много раз подряд один робот доезжает, а в очередь
+ * приходит новая цель, и назначение дорешивается
+ */
+public final class AssignmentBenchmark
+{
+    private static final int ROBOTS = 1000;
+    private static final int TARGETS = 1000;
+    private static final double FIELD_SIZE = 1000;
+    //первые прогоны прогревают JIT и в итог не идут
+    private static final int WARMUP_RUNS = 5;
+    private static final int RUNS = 10;
+    private static final int RESOLVES = 1000;
+    private static final long SEED = 20240601L;
+
+    private AssignmentBenchmark()
+    {
+    }
+
+    /**
+     * Время полного решения для каждого прогона
+     * @return время в наносекундах
+     */
+    public static long[] fullSolveNanos()
+    {
+        Random random = new Random(SEED);
+        double[] robotX = new double[ROBOTS];
+        double[] robotY = new double[ROBOTS];
+        long[] nanos = new long[RUNS];
+        for (int run = -WARMUP_RUNS; run < RUNS; run++)
+        {
+            TargetQueue queue = fill(random, robotX, robotY);
+            long start = System.nanoTime();
+            queue.assign(ROBOTS, robotX, robotY);
+            if (run >= 0)
+            {
+                nanos[run] = System.nanoTime() - start;
+            }
+        }
+        return nanos;
+    }
+
+    /**
+     * Среднее время дорешивания после прихода робота и новой цели
+     * @return время в наносекундах
+     */
+    public static long resolveNanos()
+    {
+        Random random = new Random(SEED);
+        double[] robotX = new double[ROBOTS];
+        double[] robotY = new double[ROBOTS];
+        TargetQueue queue = fill(random, robotX, robotY);
+        queue.assign(ROBOTS, robotX, robotY);
+        long total = 0;
+        for (int i = 0; i < RESOLVES; i++)
+        {
+            //робот доехал: он теперь стоит на месте своей цели
+            int robot = random.nextInt(ROBOTS);
+            int target = queue.getRobotTarget(robot);
+            robotX[robot] = queue.getX(target);
+            robotY[robot] = queue.getY(target);
+            long start = System.nanoTime();
+            queue.arrived(robot);
+            queue.add(random.nextDouble() * FIELD_SIZE, random.nextDouble() * FIELD_SIZE);
+            queue.assign(ROBOTS, robotX, robotY);
+            total += System.nanoTime() - start;
+        }
+        return total / RESOLVES;
+    }
+
+    /**
+     * Очередь со случайными целями и случайные позиции роботов
+     */
+    private static TargetQueue fill(Random random, double[] robotX, double[] robotY)
+    {
+        for (int i = 0; i < ROBOTS; i++)
+        {
+            robotX[i] = random.nextDouble() * FIELD_SIZE;
+            robotY[i] = random.nextDouble() * FIELD_SIZE;
+        }
+        TargetQueue queue = new TargetQueue();
+        for (int i = 0; i < TARGETS; i++)
+        {
+            queue.add(random.nextDouble() * FIELD_SIZE, random.nextDouble() * FIELD_SIZE);
+        }
+        return queue;
+    }
+
+    /**
+     * Замеряет полное решение и дорешивание и пишет итоги в лог
+     */
+    public static void logTiming()
+    {
+        long[] full = fullSolveNanos();
+        long worst = 0;
+        long sum = 0;
+        for (long nanos : full)
+        {
+            worst = Math.max(worst, nanos);
+            sum += nanos;
+        }
+        Logger.debug(String.format("Назначение %dx%d: в среднем %.1f мс, худший прогон %.1f мс",
+                ROBOTS, TARGETS, sum / 1e6 / full.length, worst / 1e6));
+        Logger.debug(String.format("Дорешивание после прихода робота: в среднем %.1f мкс",
+                resolveNanos() / 1e3));
+    }
+
+    /**
+     * Добавляет в мир группу роботов и столько же целей в очередь
+     * @param world мир
+     * @param count число роботов и целей
+     */
+    public static void populate(World world, int count)
+    {
+        Random random = new Random();
+        for (int i = 0; i < count; i++)
+        {
+            world.addRobot(random.nextDouble() * FIELD_SIZE, random.nextDouble() * FIELD_SIZE,
+                    random.nextDouble() * 2 * Math.PI);
+        }
+        for (int i = 0; i < count; i++)
+        {
+            world.enqueueTarget(random.nextDouble() * FIELD_SIZE, random.nextDouble() * FIELD_SIZE);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package model;
+
+import log.Logger;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Проверка качества назначения целей по сравнению с точным решением
+ * Очередь целей проходит случайную последовательность событий, как в игре:
+ * роботы доезжают до целей, приходят новые цели, в том числе когда все
+ * роботы заняты, роботы сдвигаются к своим целям; после каждого события
+ * сумма путей сравнивается с оптимумом венгерского алгоритма
+ * Запускается тестом AssignmentCheckTest при сборке и из меню "Тесты";
+ * если проигрыш больше гарантии аукциона, сборка падает
+ */
+public final class AssignmentCheck
+{
+    private static final double FIELD_SIZE = 1000;
+    private static final int EVENTS = 400;
+    //сколько пикселей робот проезжает к цели за одно событие движения
+    private static final double MAX_MOVE = 3;
+    private static final long SEED = 20240615L;
+    //пары "роботы - начальные цели": поровну, целей больше, роботов больше
+    private static final int[][] SIZES = {{100, 100}, {60, 100}, {100, 60}};
+
+    private AssignmentCheck()
+    {
+    }
+
+    /**
+     * Запуск из меню, результаты пишутся в лог
+     */
+    public static void runAndLog()
+    {
+        if (!run(Logger::debug))
+        {
+            Logger.error("Назначение целей: проигрыш больше гарантии аукциона");
+        }
+    }
+
+    /**
+     * Прогоняет все наборы событий
+     * @param report куда писать результаты
+     * @return уложилось ли каждое назначение в гарантию
+     */
+    public static boolean run(Consumer<String> report)
+    {
+        Random random = new Random(SEED);
+        boolean passed = true;
+        for (int[] size : SIZES)
+        {
+            passed &= check(report, random, size[0], size[1]);
+        }
+        return passed;
+    }
+
+    /**
+     * Один набор событий для заданного числа роботов и начальных целей
+     * Целей в очереди становится то больше, то меньше, чем роботов,
+     * поэтому торгующиеся стороны по ходу меняются местами
+     */
+    private static boolean check(Consumer<String> report, Random random, int robots, int initialTargets)
+    {
+        double[] robotX = new double[robots];
+        double[] robotY = new double[robots];
+        for (int i = 0; i < robots; i++)
+        {
+            robotX[i] = random.nextDouble() * FIELD_SIZE;
+            robotY[i] = random.nextDouble() * FIELD_SIZE;
+        }
+        TargetQueue queue = new TargetQueue();
+        for (int i = 0; i < initialTargets; i++)
+        {
+            queue.add(random.nextDouble() * FIELD_SIZE, random.nextDouble() * FIELD_SIZE);
+        }
+        queue.assign(robots, robotX, robotY);
+
+        double worstGap = 0;
+        double worstExcess = Double.NEGATIVE_INFINITY;
+        boolean valid = true;
+        for (int event = 0; event < EVENTS; event++)
+        {
+            int kind = random.nextInt(4);
+            if (kind == 0 || queue.size() < robots / 2)
+            {
+                //цель пришла, даже если все роботы заняты
+                queue.add(random.nextDouble() * FIELD_SIZE, random.nextDouble() * FIELD_SIZE);
+            }
+            else if (kind == 1 || queue.size() > robots * 2)
+            {
+                arrive(random, queue, robots, robotX, robotY);
+            }
+            else if (kind == 2)
+            {
+                arrive(random, queue, robots, robotX, robotY);
+                queue.add(random.nextDouble() * FIELD_SIZE, random.nextDouble() * FIELD_SIZE);
+            }
+            else
+            {
+                move(random, queue, robots, robotX, robotY);
+            }
+            queue.assign(robots, robotX, robotY);
+
+            valid &= isComplete(queue, robots);
+            double cost = assignedCost(queue, robots, robotX, robotY);
+            double optimum = optimalCost(queue, robots, robotX, robotY);
+            //задача дополняется до квадратной, поэтому гарантия считается по большей стороне
+            double bound = Math.max(robots, queue.size()) * TargetQueue.GUARANTEED_LOSS;
+            worstExcess = Math.max(worstExcess, cost - optimum - bound);
+            if (optimum > 0)
+            {
+                worstGap = Math.max(worstGap, (cost - optimum) / optimum);
+            }
+        }
+        boolean passed = valid && worstExcess <= 0;
+        report.accept(String.format("Назначение %d роботов, %d целей в начале, %d событий: "
+                        + "худший проигрыш оптимуму %.3f%%, %s",
+                robots, initialTargets, EVENTS, worstGap * 100,
+                !valid ? "назначение неполное" : passed ? "в пределах гарантии" : "больше гарантии"));
+        return passed;
+    }
+
+    /**
+     * Случайный занятый робот доезжает: он теперь стоит на месте своей цели
+     */
+    private static void arrive(Random random, TargetQueue queue, int robots, double[] robotX, double[] robotY)
+    {
+        int start = random.nextInt(robots);
+        for (int i = 0; i < robots; i++)
+        {
+            int robot = (start + i) % robots;
+            int target = queue.getRobotTarget(robot);
+            if (target >= 0)
+            {
+                robotX[robot] = queue.getX(target);
+                robotY[robot] = queue.getY(target);
+                queue.arrived(robot);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Занятые роботы проезжают немного в сторону своих целей
+     */
+    private static void move(Random random, TargetQueue queue, int robots, double[] robotX, double[] robotY)
+    {
+        for (int robot = 0; robot < robots; robot++)
+        {
+            int target = queue.getRobotTarget(robot);
+            if (target < 0)
+            {
+                continue;
+            }
+            double dx = queue.getX(target) - robotX[robot];
+            double dy = queue.getY(target) - robotY[robot];
+            double distance = Math.sqrt(dx * dx + dy * dy);
+            double step = Math.min(distance, random.nextDouble() * MAX_MOVE);
+            if (distance > 0)
+            {
+                robotX[robot] += dx / distance * step;
+                robotY[robot] += dy / distance * step;
+            }
+        }
+    }
+
+    /**
+     * Каждая цель и каждый робот заняты не больше одного раза,
+     * а меньшая сторона назначена целиком
+     */
+    private static boolean isComplete(TargetQueue queue, int robots)
+    {
+        boolean[] taken = new boolean[queue.size()];
+        int assigned = 0;
+        for (int robot = 0; robot < robots; robot++)
+        {
+            int target = queue.getRobotTarget(robot);
+            if (target < 0)
+            {
+                continue;
+            }
+            if (target >= taken.length || taken[target])
+            {
+                return false;
+            }
+            taken[target] = true;
+            assigned++;
+        }
+        return assigned == Math.min(robots, queue.size());
+    }
+
+    private static double assignedCost(TargetQueue queue, int robots, double[] robotX, double[] robotY)
+    {
+        double cost = 0;
+        for (int robot = 0; robot < robots; robot++)
+        {
+            int target = queue.getRobotTarget(robot);
+            if (target >= 0)
+            {
+                cost += distance(robotX[robot], robotY[robot], queue.getX(target), queue.getY(target));
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * Оптимальная сумма путей венгерским алгоритмом за O(n^2 m),
+     * строки - меньшая сторона, столбцы - большая
+     */
+    private static double optimalCost(TargetQueue queue, int robots, double[] robotX, double[] robotY)
+    {
+        boolean robotRows = robots <= queue.size();
+        int rows = Math.min(robots, queue.size());
+        int columns = Math.max(robots, queue.size());
+        if (rows == 0)
+        {
+            return 0;
+        }
+        double[][] cost = new double[rows + 1][columns + 1];
+        for (int robot = 0; robot < robots; robot++)
+        {
+            for (int target = 0; target < queue.size(); target++)
+            {
+                double value = distance(robotX[robot], robotY[robot], queue.getX(target), queue.getY(target));
+                if (robotRows)
+                {
+                    cost[robot + 1][target + 1] = value;
+                }
+                else
+                {
+                    cost[target + 1][robot + 1] = value;
+                }
+            }
+        }
+        //потенциалы строк и столбцов, строка каждого столбца и путь дополнения
+        double[] rowPotential = new double[rows + 1];
+        double[] columnPotential = new double[columns + 1];
+        int[] columnRow = new int[columns + 1];
+        int[] way = new int[columns + 1];
+        double[] minSlack = new double[columns + 1];
+        boolean[] used = new boolean[columns + 1];
+        for (int row = 1; row <= rows; row++)
+        {
+            columnRow[0] = row;
+            int column = 0;
+            Arrays.fill(minSlack, Double.POSITIVE_INFINITY);
+            Arrays.fill(used, false);
+            do
+            {
+                used[column] = true;
+                int current = columnRow[column];
+                double delta = Double.POSITIVE_INFINITY;
+                int next = 0;
+                for (int j = 1; j <= columns; j++)
+                {
+                    if (used[j])
+                    {
+                        continue;
+                    }
+                    double slack = cost[current][j] - rowPotential[current] - columnPotential[j];
+                    if (slack < minSlack[j])
+                    {
+                        minSlack[j] = slack;
+                        way[j] = column;
+                    }
+                    if (minSlack[j] < delta)
+                    {
+                        delta = minSlack[j];
+                        next = j;
+                    }
+                }
+                for (int j = 0; j <= columns; j++)
+                {
+                    if (used[j])
+                    {
+                        rowPotential[columnRow[j]] += delta;
+                        columnPotential[j] -= delta;
+                    }
+                    else
+                    {
+                        minSlack[j] -= delta;
+                    }
+                }
+                column = next;
+            }
+            while (columnRow[column] != 0);
+            do
+            {
+                int previous = way[column];
+                columnRow[column] = columnRow[previous];
+                column = previous;
+            }
+            while (column != 0);
+        }
+        return -columnPotential[0];
+    }
+
+    private static double distance(double x1, double y1, double x2, double y2)
+    {
+        double diffX = x1 - x2;
+        double diffY = y1 - y2;
+        return Math.sqrt(diffX * diffX + diffY * diffY);
+    }
+}
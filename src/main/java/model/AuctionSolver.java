@@ -0,0 +1,399 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Аукционный алгоритм Берцекаса для задачи о назначениях
+ * Участники (bidders) торгуются за объекты, стоимость пары - расстояние
+ * между их точками; участников не больше, чем объектов, поэтому в итоге
+ * каждый участник получает свой объект
+ * Цены объектов и уже сделанные назначения сохраняются между вызовами,
+ * поэтому после небольших изменений торгуются только свободные участники
+ * Решение держит условие epsilon-дополняющей нежесткости: объект каждого
+ * участника выгоднее любого другого для него объекта не больше чем на epsilon,
+ * а свободные объекты не дороже занятых; тогда сумма стоимостей отличается
+ * от оптимальной не больше чем на (число объектов) * epsilon
+ * Новые и освободившиеся объекты или сдвиг точек нарушают условие, его
+ * восстанавливают проходы repair вперемешку с дорешиванием и затем reverse
+ * Рабочие массивы переиспользуются, поэтому объект нельзя делить между потоками
+ */
+final class AuctionSolver
+{
+    //во сколько раз уменьшается шаг торга между фазами полного решения
+    private static final double EPSILON_FACTOR = 5;
+
+    //стек свободных участников
+    private int[] unassigned = new int[0];
+    //объекты фиктивных участников, см. solve
+    private int[] dummyObject = new int[0];
+    //стоимости для одного участника, когда матрицы нет
+    private float[] rowCosts = new float[0];
+    //матрица стоимостей для полного решения, строка на участника
+    private float[] costs = new float[0];
+
+    /**
+     * Полное решение с масштабированием шага: сначала грубые торги с большим
+     * шагом быстро находят примерные цены, затем шаг уменьшается до epsilon
+     * Все прошлые назначения сбрасываются, цены используются как начальные
+     * Если объектов больше, задача дополняется до квадратной фиктивными
+     * участниками с нулевой стоимостью: они забирают лишние объекты, иначе
+     * цены, поднятые на грубых фазах, не дают найти оптимум
+     */
+    void solve(int bidderCount, double[] bidderX, double[] bidderY,
+               int objectCount, double[] objectX, double[] objectY,
+               int[] bidderObject, int[] objectBidder, double[] price, double epsilon)
+    {
+        if (bidderCount == 0 || objectCount == 0)
+        {
+            return;
+        }
+        if (costs.length < bidderCount * objectCount)
+        {
+            costs = new float[bidderCount * objectCount];
+        }
+        if (dummyObject.length < objectCount - bidderCount)
+        {
+            dummyObject = new int[objectCount - bidderCount];
+        }
+        double maxCost = 0;
+        for (int b = 0; b < bidderCount; b++)
+        {
+            int row = b * objectCount;
+            for (int o = 0; o < objectCount; o++)
+            {
+                float cost = (float)distance(bidderX[b], bidderY[b], objectX[o], objectY[o]);
+                costs[row + o] = cost;
+                maxCost = Math.max(maxCost, cost);
+            }
+        }
+        double phaseEpsilon = Math.max(epsilon, maxCost / EPSILON_FACTOR);
+        while (true)
+        {
+            Arrays.fill(bidderObject, 0, bidderCount, -1);
+            Arrays.fill(dummyObject, 0, objectCount - bidderCount, -1);
+            Arrays.fill(objectBidder, 0, objectCount, -1);
+            auction(bidderCount, objectCount, objectCount, null, null, null, null,
+                    bidderObject, objectBidder, price, phaseEpsilon, true, Integer.MAX_VALUE);
+            if (phaseEpsilon <= epsilon)
+            {
+                for (int o = 0; o < objectCount; o++)
+                {
+                    objectBidder[o] = Math.max(objectBidder[o], -1);
+                }
+                return;
+            }
+            phaseEpsilon = Math.max(epsilon, phaseEpsilon / EPSILON_FACTOR);
+        }
+    }
+
+    /**
+     * Дорешивание: торгуются только свободные участники, прочие назначения
+     * остаются, пока их не перебьют; стоимости считаются по ходу торгов
+     * Каждая ставка стоит прохода по всем объектам, а после большого сдвига
+     * торги могут затянуться дольше полного решения, поэтому число ставок
+     * ограничено; если его не хватило, назначение остается незаконченным
+     * @param maxBids сколько ставок можно сделать
+     * @return сколько ставок сделано или -1, если торги не уложились
+     */
+    int resolve(int bidderCount, double[] bidderX, double[] bidderY,
+                int objectCount, double[] objectX, double[] objectY,
+                int[] bidderObject, int[] objectBidder, double[] price, double epsilon, int maxBids)
+    {
+        if (bidderCount == 0 || objectCount == 0)
+        {
+            return 0;
+        }
+        return auction(bidderCount, bidderCount, objectCount, bidderX, bidderY, objectX, objectY,
+                bidderObject, objectBidder, price, epsilon, false, maxBids);
+    }
+
+    /**
+     * Один проход восстановления условия нежесткости перед дорешиванием:
+     * для каждого отмеченного объекта освобождается один занятый участник,
+     * которому этот объект выгоднее собственного больше всех и больше чем
+     * на epsilon; объект освобожденного участника тоже отмечается
+     * Освобождается только один участник на объект, иначе за один новый
+     * объект освобождается вся округа; остальных, если надо, освободят
+     * следующие проходы, когда освобожденный уже сделает ставку
+     * @param changed отмеченные объекты: новые или освободившиеся
+     * @param everything сравнить каждого занятого участника со всеми объектами,
+     *                   нужно, когда сдвинулись сами точки
+     * @return сколько участников освобождено
+     */
+    int repair(int bidderCount, double[] bidderX, double[] bidderY,
+               int objectCount, double[] objectX, double[] objectY,
+               int[] bidderObject, int[] objectBidder, double[] price,
+               boolean[] changed, boolean everything, double epsilon)
+    {
+        int released = 0;
+        if (everything)
+        {
+            for (int b = 0; b < bidderCount; b++)
+            {
+                int own = bidderObject[b];
+                if (own < 0)
+                {
+                    continue;
+                }
+                double best = Double.NEGATIVE_INFINITY;
+                for (int o = 0; o < objectCount; o++)
+                {
+                    best = Math.max(best, value(bidderX[b], bidderY[b], objectX[o], objectY[o], price[o]));
+                }
+                if (best > value(bidderX[b], bidderY[b], objectX[own], objectY[own], price[own]) + epsilon)
+                {
+                    release(b, bidderObject, objectBidder, changed);
+                    released++;
+                }
+            }
+        }
+        for (int o = 0; o < objectCount; o++)
+        {
+            if (!changed[o])
+            {
+                continue;
+            }
+            int worst = -1;
+            double worstGain = epsilon;
+            for (int b = 0; b < bidderCount; b++)
+            {
+                int own = bidderObject[b];
+                if (own < 0 || own == o)
+                {
+                    continue;
+                }
+                double gain = value(bidderX[b], bidderY[b], objectX[o], objectY[o], price[o])
+                        - value(bidderX[b], bidderY[b], objectX[own], objectY[own], price[own]);
+                if (gain > worstGain)
+                {
+                    worstGain = gain;
+                    worst = b;
+                }
+            }
+            if (worst >= 0)
+            {
+                release(worst, bidderObject, objectBidder, changed);
+                released++;
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Обратные торги для объектов, оставшихся свободными: если объектов больше,
+     * чем участников, свободный объект не должен быть дороже самого дешевого
+     * занятого, иначе решение может быть далеко от оптимума
+     * Такой объект сам выбирает участника, которому он выгоднее всего, и
+     * дешевеет так, чтобы остальным он был выгоднее их объектов не больше
+     * чем на epsilon; выбранный участник переходит к нему, а его прежний
+     * объект становится свободным; если объект никому не выгоден, его цена
+     * просто опускается до самой низкой цены занятых
+     * Когда объектов почти столько же, сколько участников, цепочка обменов
+     * бывает длинной, поэтому число шагов ограничено, как ставки в resolve
+     * @param maxSteps сколько объектов можно перебрать
+     * @return уложились ли обратные торги в maxSteps
+     */
+    boolean reverse(int bidderCount, double[] bidderX, double[] bidderY,
+                    int objectCount, double[] objectX, double[] objectY,
+                    int[] bidderObject, int[] objectBidder, double[] price, double epsilon, int maxSteps)
+    {
+        if (unassigned.length < objectCount)
+        {
+            unassigned = new int[objectCount];
+        }
+        double lowest = Double.POSITIVE_INFINITY;
+        for (int o = 0; o < objectCount; o++)
+        {
+            if (objectBidder[o] >= 0)
+            {
+                lowest = Math.min(lowest, price[o]);
+            }
+        }
+        int top = 0;
+        for (int o = 0; o < objectCount; o++)
+        {
+            if (objectBidder[o] < 0 && price[o] > lowest)
+            {
+                unassigned[top++] = o;
+            }
+        }
+        int steps = 0;
+        while (top > 0)
+        {
+            if (steps++ == maxSteps)
+            {
+                return false;
+            }
+            int object = unassigned[--top];
+            //сколько участник готов заплатить за объект, не теряя в выгоде
+            double best = Double.NEGATIVE_INFINITY;
+            double second = Double.NEGATIVE_INFINITY;
+            int bestBidder = -1;
+            for (int b = 0; b < bidderCount; b++)
+            {
+                int own = bidderObject[b];
+                if (own < 0)
+                {
+                    continue;
+                }
+                double offer = value(bidderX[b], bidderY[b], objectX[object], objectY[object], 0)
+                        - value(bidderX[b], bidderY[b], objectX[own], objectY[own], price[own]);
+                if (offer > best)
+                {
+                    second = best;
+                    best = offer;
+                    bestBidder = b;
+                }
+                else if (offer > second)
+                {
+                    second = offer;
+                }
+            }
+            if (bestBidder < 0 || lowest >= best - epsilon)
+            {
+                price[object] = lowest;
+                continue;
+            }
+            price[object] = Math.max(lowest, second - epsilon);
+            int previous = bidderObject[bestBidder];
+            objectBidder[previous] = -1;
+            bidderObject[bestBidder] = object;
+            objectBidder[object] = bestBidder;
+            if (price[previous] > lowest)
+            {
+                unassigned[top++] = previous;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Освобождает участника и отмечает его объект
+     */
+    private static void release(int bidder, int[] bidderObject, int[] objectBidder, boolean[] changed)
+    {
+        int object = bidderObject[bidder];
+        bidderObject[bidder] = -1;
+        objectBidder[object] = -1;
+        changed[object] = true;
+    }
+
+    /**
+     * Выгода объекта для участника, стоимость округляется так же, как в торгах
+     */
+    private static double value(double bidderX, double bidderY, double objectX, double objectY, double price)
+    {
+        return -(float)distance(bidderX, bidderY, objectX, objectY) - price;
+    }
+
+    /**
+     * Сами торги по Гауссу-Зейделю: свободный участник находит лучший и второй
+     * по выгоде объекты, поднимает цену лучшего на разницу плюс epsilon
+     * и забирает его, прежний владелец снова становится свободным
+     * Участники с номерами от bidderCount до totalBidders фиктивные
+     * @return сколько ставок сделано или -1, если их понадобилось больше maxBids
+     */
+    private int auction(int bidderCount, int totalBidders, int objectCount,
+                        double[] bidderX, double[] bidderY, double[] objectX, double[] objectY,
+                        int[] bidderObject, int[] objectBidder, double[] price, double epsilon,
+                        boolean useMatrix, int maxBids)
+    {
+        if (unassigned.length < totalBidders)
+        {
+            unassigned = new int[totalBidders];
+        }
+        if (rowCosts.length < objectCount)
+        {
+            rowCosts = new float[objectCount];
+        }
+        int top = 0;
+        for (int b = totalBidders - 1; b >= 0; b--)
+        {
+            if ((b < bidderCount ? bidderObject[b] : dummyObject[b - bidderCount]) < 0)
+            {
+                unassigned[top++] = b;
+            }
+        }
+        int bids = 0;
+        while (top > 0)
+        {
+            if (bids++ == maxBids)
+            {
+                return -1;
+            }
+            int bidder = unassigned[--top];
+            boolean dummy = bidder >= bidderCount;
+            double best = Double.NEGATIVE_INFINITY;
+            double second = Double.NEGATIVE_INFINITY;
+            int bestObject = -1;
+            float[] source = rowCosts;
+            int row = 0;
+            if (dummy)
+            {
+                Arrays.fill(rowCosts, 0, objectCount, 0);
+            }
+            else if (useMatrix)
+            {
+                source = costs;
+                row = bidder * objectCount;
+            }
+            else
+            {
+                double x = bidderX[bidder];
+                double y = bidderY[bidder];
+                for (int o = 0; o < objectCount; o++)
+                {
+                    rowCosts[o] = (float)distance(x, y, objectX[o], objectY[o]);
+                }
+            }
+            for (int o = 0; o < objectCount; o++)
+            {
+                double value = -source[row + o] - price[o];
+                if (value > best)
+                {
+                    second = best;
+                    best = value;
+                    bestObject = o;
+                }
+                else if (value > second)
+                {
+                    second = value;
+                }
+            }
+            //единственный объект не с кем сравнивать, цена растет на шаг
+            double increment = (second == Double.NEGATIVE_INFINITY ? 0 : best - second) + epsilon;
+            price[bestObject] += increment;
+            int previous = objectBidder[bestObject];
+            if (previous >= 0)
+            {
+                bidderObject[previous] = -1;
+                unassigned[top++] = previous;
+            }
+            else if (previous < -1)
+            {
+                previous = -2 - previous;
+                dummyObject[previous - bidderCount] = -1;
+                unassigned[top++] = previous;
+            }
+            if (dummy)
+            {
+                //объект фиктивного участника для вызывающего остается свободным
+                objectBidder[bestObject] = -2 - bidder;
+                dummyObject[bidder - bidderCount] = bestObject;
+            }
+            else
+            {
+                objectBidder[bestObject] = bidder;
+                bidderObject[bidder] = bestObject;
+            }
+        }
+        return bids;
+    }
+
+    private static double distance(double x1, double y1, double x2, double y2)
+    {
+        double diffX = x1 - x2;
+        double diffY = y1 - y2;
+        return Math.sqrt(diffX * diffX + diffY * diffY);
+    }
+}
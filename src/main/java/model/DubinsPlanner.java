@@ -0,0 +1,156 @@
+package model;
+
+/**
+ * Планировщик кратчайшего по времени пути до точки для робота
+ * с ограниченными линейной и угловой скоростями
+ * Направление в цели не важно, поэтому оптимальный путь Дубинса имеет вид
+ * "дуга, отрезок" или "дуга, дуга в другую сторону"; дуги проходятся на полной
+ * скорости с радиусом MAX_VELOCITY / MAX_ANGULAR_VELOCITY
+ * Робот может и стоять на месте, поэтому рассматривается еще разворот на месте
+ * с последующим отрезком - он выигрывает, когда цель внутри круга поворота
+ * Путь пересчитывается на каждом шаге, а робот выполняет его первый участок,
+ * так накопленные ошибки шага сразу исправляются
+ * Все вычисления идут в системе координат модели: направление растет при
+ * положительной угловой скорости, такой поворот считается левым
+ */
+final class DubinsPlanner
+{
+    private static final double V = World.MAX_VELOCITY;
+    private static final double OMEGA = World.MAX_ANGULAR_VELOCITY;
+    //радиус поворота на полной скорости
+    private static final double R = V / OMEGA;
+    private static final double TWO_PI = 2 * Math.PI;
+    //углы меньше этого считаются нулевыми
+    private static final double EPSILON = 1e-9;
+
+    private DubinsPlanner()
+    {
+    }
+
+    /**
+     * Выбирает лучший путь и скорости на ближайший шаг
+     * @param x координата робота
+     * @param y координата робота
+     * @param direction направление робота
+     * @param targetX координата цели
+     * @param targetY координата цели
+     * @param duration длительность шага в мс
+     * @param command куда записать скорости и оценку времени до цели
+     */
+    static void plan(double x, double y, double direction,
+                     double targetX, double targetY, double duration, SteeringCommand command)
+    {
+        double dx = targetX - x;
+        double dy = targetY - y;
+        double cos = Math.cos(direction);
+        double sin = Math.sin(direction);
+        //цель в системе координат робота: вперед и влево
+        double forward = cos * dx + sin * dy;
+        double left = -sin * dx + cos * dy;
+        double distance = Math.sqrt(dx * dx + dy * dy);
+
+        //разворот на месте, потом прямо
+        double bearing = Math.atan2(left, forward);
+        double bestTime = Math.abs(bearing) / OMEGA + distance / V;
+        double bestTurn = Math.abs(bearing);
+        double bestSide = Math.signum(bearing);
+        boolean bestRolling = false;
+
+        //пути с дугами: сначала налево (side = 1), потом зеркально направо
+        for (int side = 1; side >= -1; side -= 2)
+        {
+            double lx = forward;
+            double ly = side * left;
+            //цель относительно центра левого круга поворота (0, R)
+            double cx = lx;
+            double cy = ly - R;
+            double centerDistance = Math.sqrt(cx * cx + cy * cy);
+            if (centerDistance < R)
+            {
+                continue;
+            }
+
+            //дуга, потом отрезок по касательной
+            double turn = asNormalizedRadians(Math.atan2(cy, cx) - Math.acos(R / centerDistance) + Math.PI / 2);
+            double straight = Math.sqrt(centerDistance * centerDistance - R * R);
+            double time = (R * turn + straight) / V;
+            if (time < bestTime)
+            {
+                bestTime = time;
+                bestTurn = turn;
+                bestSide = side;
+                bestRolling = true;
+            }
+
+            //дуга, потом дуга в обратную сторону: центр второго круга на расстоянии 2R
+            //от центра первого и на расстоянии R от цели
+            if (centerDistance > 3 * R)
+            {
+                continue;
+            }
+            double along = (3 * R * R + centerDistance * centerDistance) / (2 * centerDistance);
+            double across = Math.sqrt(Math.max(0, 4 * R * R - along * along));
+            double ux = cx / centerDistance;
+            double uy = cy / centerDistance;
+            for (int branch = 1; branch >= -1; branch -= 2)
+            {
+                double secondX = along * ux - branch * across * uy;
+                double secondY = R + along * uy + branch * across * ux;
+                double switchAngle = Math.atan2(secondY - R, secondX);
+                double firstTurn = asNormalizedRadians(switchAngle + Math.PI / 2);
+                double targetAngle = Math.atan2(ly - secondY, lx - secondX);
+                double secondTurn = asNormalizedRadians(switchAngle + Math.PI - targetAngle);
+                time = R * (firstTurn + secondTurn) / V;
+                if (time < bestTime)
+                {
+                    bestTime = time;
+                    bestRolling = true;
+                    //если первая дуга нулевая, то сразу начинается вторая
+                    if (firstTurn < EPSILON)
+                    {
+                        bestTurn = secondTurn;
+                        bestSide = -side;
+                    }
+                    else
+                    {
+                        bestTurn = firstTurn;
+                        bestSide = side;
+                    }
+                }
+            }
+        }
+
+        command.arrivalTime = bestTime;
+        if (bestTurn < EPSILON)
+        {
+            //уже смотрим на цель: прямо, причем последний шаг ровно до цели
+            command.angularVelocity = 0;
+            command.velocity = Math.min(V, distance / duration);
+        }
+        else
+        {
+            //остаток поворота меньше шага - поворачиваем ровно на него
+            command.angularVelocity = bestSide * Math.min(OMEGA, bestTurn / duration);
+            command.velocity = bestRolling ? V : 0;
+        }
+    }
+
+    /**
+     * Нормализация угла в диапазон от 0 до 2ПИ, почти полный оборот считается нулем
+     * @param angle угол в радианах
+     * @return нормализованный угол
+     */
+    private static double asNormalizedRadians(double angle)
+    {
+        angle %= TWO_PI;
+        if (angle < 0)
+        {
+            angle += TWO_PI;
+        }
+        if (TWO_PI - angle < EPSILON)
+        {
+            return 0;
+        }
+        return angle;
+    }
+}
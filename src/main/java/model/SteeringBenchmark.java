@@ -0,0 +1,145 @@
+package model;
+
+import log.Logger;
+
+import java.util.Random;
+
+/**
+ * Сравнение регуляторов на фиксированном наборе пар "старт - цель"
+ * Для каждой пары один робот шагается с тем же периодом, что и в игре,
+ * пока не доедет до цели или не кончится лимит шагов
+ */
+public final class SteeringBenchmark
+{
+    //период шага в мс, как у WorldScheduler
+    private static final int TICK_PERIOD = 10;
+    //после стольких шагов считаем, что робот не доедет (около 20 минут игры)
+    private static final int MAX_TICKS = 120_000;
+    private static final int RANDOM_CASES = 40;
+    private static final long SEED = 20240501L;
+
+    private SteeringBenchmark()
+    {
+    }
+
+    /**
+     * Набор пар: x, y, направление робота, x, y цели
+     * Кроме случайных есть неудобные для простого регулятора случаи:
+     * цель сзади, цель сбоку внутри круга поворота, переход через 0/2ПИ
+     * @return массив пар
+     */
+    static double[][] cases()
+    {
+        double[][] cases = new double[RANDOM_CASES + 4][];
+        cases[0] = new double[] {100, 100, 0, 80, 100};
+        cases[1] = new double[] {100, 100, 0, 130, 140};
+        cases[2] = new double[] {100, 100, 0.1, 300, 80};
+        cases[3] = new double[] {100, 100, 6.2, 300, 120};
+        Random random = new Random(SEED);
+        for (int i = 4; i < cases.length; i++)
+        {
+            cases[i] = new double[] {
+                    random.nextDouble() * 600, random.nextDouble() * 600, random.nextDouble() * 2 * Math.PI,
+                    random.nextDouble() * 600, random.nextDouble() * 600};
+        }
+        return cases;
+    }
+
+    /**
+     * Число шагов до цели для каждой пары
+     * @param mode регулятор
+     * @return шаги, MAX_TICKS - если робот так и не доехал
+     */
+    public static int[] ticksToArrival(SteeringMode mode)
+    {
+        double[][] cases = cases();
+        int[] ticks = new int[cases.length];
+        for (int c = 0; c < cases.length; c++)
+        {
+            World world = new World();
+            world.setSteeringMode(mode);
+            world.setRobotPose(0, cases[c][0], cases[c][1], cases[c][2]);
+            world.setTargetPosition(cases[c][3], cases[c][4]);
+            int tick = 0;
+            while (tick < MAX_TICKS && world.step(TICK_PERIOD))
+            {
+                tick++;
+            }
+            ticks[c] = tick;
+        }
+        return ticks;
+    }
+
+    /**
+     * Время до цели, которое планировщик Дубинса оценивает из начальной позы
+     * Путь пересчитывается на каждом шаге и может смешивать разворот на месте
+     * с дугами, поэтому фактическое время бывает меньше плана, но не больше
+     * него больше чем на пару шагов округления
+     * @return время для каждой пары в шагах
+     */
+    public static double[] plannedTicks()
+    {
+        double[][] cases = cases();
+        double[] ticks = new double[cases.length];
+        SteeringCommand command = new SteeringCommand();
+        for (int c = 0; c < cases.length; c++)
+        {
+            DubinsPlanner.plan(cases[c][0], cases[c][1], cases[c][2], cases[c][3], cases[c][4],
+                    TICK_PERIOD, command);
+            ticks[c] = command.arrivalTime / TICK_PERIOD;
+        }
+        return ticks;
+    }
+
+    /**
+     * Прогоняет все регуляторы и пишет итоги в лог
+     * Для регулятора Дубинса еще сравнивает фактическое время с планом
+     */
+    public static void logComparison()
+    {
+        for (SteeringMode mode : SteeringMode.values())
+        {
+            int[] ticks = ticksToArrival(mode);
+            long total = 0;
+            int worst = 0;
+            int failed = 0;
+            for (int tick : ticks)
+            {
+                total += tick;
+                worst = Math.max(worst, tick);
+                if (tick >= MAX_TICKS)
+                {
+                    failed++;
+                }
+            }
+            Logger.debug(String.format("%s: в сумме %d шагов, худший случай %d, не доехал в %d из %d",
+                    mode.title(), total, worst, failed, ticks.length));
+            if (mode == SteeringMode.Dubins)
+            {
+                logPlanError(ticks);
+            }
+        }
+    }
+
+    /**
+     * Пишет в лог, насколько фактическое время до цели расходится с планом
+     * @param ticks фактические шаги до цели регулятора Дубинса
+     */
+    private static void logPlanError(int[] ticks)
+    {
+        double[] planned = plannedTicks();
+        double sum = 0;
+        double worst = 0;
+        for (int c = 0; c < ticks.length; c++)
+        {
+            double error = ticks[c] - planned[c];
+            sum += Math.abs(error);
+            if (Math.abs(error) > Math.abs(worst))
+            {
+                worst = error;
+            }
+        }
+        Logger.debug(String.format("%s: факт расходится с планом в среднем на %.1f шага, худший случай %+.1f",
+                SteeringMode.Dubins.title(), sum / ticks.length, worst));
+    }
+}
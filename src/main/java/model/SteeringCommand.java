@@ -0,0 +1,15 @@
+package model;
+
+/**
+ * Скорости, которые регулятор выдает роботу на один шаг
+ * Объект переиспользуется, чтобы шаг модели не выделял память
+ */
+class SteeringCommand
+{
+    //линейная скорость
+    double velocity;
+    //угловая скорость
+    double angularVelocity;
+    //оценка времени до цели по выбранному пути, мс
+    double arrivalTime;
+}
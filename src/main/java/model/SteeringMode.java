@@ -0,0 +1,24 @@
+package model;
+
+/**
+ * Способ, которым роботы поворачивают к цели
+ */
+public enum SteeringMode
+{
+    //поворот в сторону цели на полной скорости, без учета перехода через 0/2ПИ
+    BangBang("Простой регулятор"),
+    //движение по кратчайшему по времени пути Дубинса
+    Dubins("Путь Дубинса");
+
+    private final String title;
+
+    SteeringMode(String title)
+    {
+        this.title = title;
+    }
+
+    public String title()
+    {
+        return title;
+    }
+}
@@ -0,0 +1,13 @@
+package model;
+
+/**
+ * Слушатель шагов модели
+ * Вызывается в потоке модели после каждого шага, в котором роботы сдвинулись,
+ * пока мир заблокирован, поэтому читать состояние можно через
+ * {@link World#getRobotX(int)} и соседние методы без копирования
+ * Должен работать быстро, иначе он задерживает следующий шаг
+ */
+public interface StepListener
+{
+    void onWorldStepped(World world);
+}
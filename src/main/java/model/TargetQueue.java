@@ -0,0 +1,595 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * Очередь целей для группы роботов и их назначение роботам
+ * Каждой цели нужен ровно один робот, стоимость пары - расстояние от робота
+ * до цели, назначение ищется аукционом с минимальной суммарной стоимостью
+ * Торгуется меньшая сторона: если целей не меньше, чем роботов, за цели
+ * торгуются роботы, иначе за роботов торгуются цели, а лишние роботы стоят
+ * Назначения и цены сохраняются между решениями: после новой цели или
+ * доехавшего робота занятые участники, которым новый или освободившийся
+ * объект выгоднее их собственного, освобождаются, и торгуются только
+ * свободные участники; когда роботы отъедут от позиций последней полной
+ * проверки дальше DRIFT_LIMIT, с объектами сравнивается каждый участник
+ * Полное решение нужно, лишь когда стороны меняются местами или свободных
+ * участников много
+ * В мире полное решение идет в фоновом потоке над копией позиций, см.
+ * {@link #update}: пока оно идет, очередь живет со старым назначением,
+ * новые цели ждут, а готовый результат переносится на те цели, что еще
+ * остались, и дальше, если что-то изменилось, очередь дорешивается как обычно
+ * Используется только под блокировкой мира
+ */
+final class TargetQueue
+{
+    //допустимый проигрыш аукциона на одного участника, в пикселях пути
+    private static final double EPSILON = 0.5;
+    //при большем числе свободных участников дорешивание медленнее полного решения
+    private static final int RESOLVE_LIMIT = 64;
+    //сколько ставок на участника можно сделать при дорешивании; после большого
+    //сдвига торги затягиваются, и полное решение в фоне обходится дешевле
+    private static final int BIDS_PER_BIDDER = 2;
+    //насколько роботы могут сдвинуться без полной проверки назначения, в пикселях
+    private static final double DRIFT_LIMIT = 2;
+    //гарантированный проигрыш оптимуму на участника: каждое расстояние
+    //с последней полной проверки могло измениться не больше чем на DRIFT_LIMIT
+    static final double GUARANTEED_LOSS = EPSILON + 2 * DRIFT_LIMIT;
+    //сколько младших бит ключа поиска цели отведено под ее номер в копии,
+    //то есть целей в очереди меньше миллиона
+    private static final int INDEX_BITS = 20;
+
+    //цели в порядке добавления, доехавшие заменяются последней
+    private int count;
+    private double[] targetX = new double[16];
+    private double[] targetY = new double[16];
+    private double[] targetPrice = new double[16];
+    private int[] targetRobot = new int[16];
+    //цель добавлена после прошлого решения
+    private boolean[] targetFresh = new boolean[16];
+    //постоянный номер цели, по нему результат фонового решения находит цель,
+    //которая за это время могла сменить место в массивах
+    private long[] targetId = new long[16];
+    private long nextTargetId;
+
+    //назначения роботов, -1 если робот свободен
+    private int robotCount;
+    private int[] robotTarget = new int[1];
+    private double[] robotPrice = new double[1];
+    //робот появился или освободился после прошлого решения
+    private boolean[] robotFresh = new boolean[1];
+    //позиции роботов при последней полной проверке назначения
+    private double[] checkedX = new double[1];
+    private double[] checkedY = new double[1];
+
+    //торгуются ли роботы (иначе торгуются цели)
+    private boolean robotsBid = true;
+    //нужно ли перерешать назначение
+    private boolean dirty;
+
+    private final AuctionSolver solver = new AuctionSolver();
+
+    //полное решение над копией, создается при первой надобности
+    private FullSolve fullSolve;
+    //полное решение запущено в фоне и его результат еще не перенесен
+    private boolean solving;
+    //растет при очистке очереди, результат решения до очистки не нужен
+    private long generation;
+
+    int size()
+    {
+        return count;
+    }
+
+    double getX(int i)
+    {
+        return targetX[i];
+    }
+
+    double getY(int i)
+    {
+        return targetY[i];
+    }
+
+    /**
+     * @return нужно ли вызвать {@link #update}: назначение устарело
+     * или ждет результата фонового решения
+     */
+    boolean needsUpdate()
+    {
+        return dirty || solving;
+    }
+
+    /**
+     * Отмечает, что назначение устарело, например появились новые роботы
+     */
+    void markDirty()
+    {
+        dirty = true;
+    }
+
+    /**
+     * @param robot номер робота
+     * @return номер назначенной цели или -1
+     */
+    int getRobotTarget(int robot)
+    {
+        return robot < robotCount ? robotTarget[robot] : -1;
+    }
+
+    /**
+     * Добавляет цель в очередь, робот ей назначится при следующем решении
+     * @param x координата цели
+     * @param y координата цели
+     */
+    void add(double x, double y)
+    {
+        if (count == targetX.length)
+        {
+            int capacity = count * 2;
+            targetX = Arrays.copyOf(targetX, capacity);
+            targetY = Arrays.copyOf(targetY, capacity);
+            targetPrice = Arrays.copyOf(targetPrice, capacity);
+            targetRobot = Arrays.copyOf(targetRobot, capacity);
+            targetFresh = Arrays.copyOf(targetFresh, capacity);
+            targetId = Arrays.copyOf(targetId, capacity);
+        }
+        targetId[count] = nextTargetId++;
+        targetX[count] = x;
+        targetY[count] = y;
+        //свободный объект не должен стоить дороже занятых, иначе решение неоптимально
+        targetPrice[count] = minPrice(targetPrice, count);
+        targetRobot[count] = -1;
+        targetFresh[count] = true;
+        count++;
+        dirty = true;
+    }
+
+    /**
+     * Убирает все цели, все роботы становятся свободными
+     */
+    void clear()
+    {
+        count = 0;
+        Arrays.fill(robotTarget, 0, robotCount, -1);
+        Arrays.fill(robotPrice, 0, robotCount, 0);
+        robotsBid = true;
+        dirty = false;
+        generation++;
+    }
+
+    /**
+     * Робот доехал до своей цели: цель убирается, робот освобождается
+     * @param robot номер робота
+     */
+    void arrived(int robot)
+    {
+        int target = robotTarget[robot];
+        if (target < 0)
+        {
+            return;
+        }
+        robotTarget[robot] = -1;
+        if (!robotsBid)
+        {
+            robotPrice[robot] = minPrice(robotPrice, robotCount);
+            robotFresh[robot] = true;
+        }
+        int last = --count;
+        if (target != last)
+        {
+            targetX[target] = targetX[last];
+            targetY[target] = targetY[last];
+            targetPrice[target] = targetPrice[last];
+            targetRobot[target] = targetRobot[last];
+            targetFresh[target] = targetFresh[last];
+            targetId[target] = targetId[last];
+            if (targetRobot[target] >= 0)
+            {
+                robotTarget[targetRobot[target]] = target;
+            }
+        }
+        dirty = true;
+    }
+
+    /**
+     * Перерешивает назначение для текущих позиций роботов, полное решение,
+     * если оно нужно, идет в вызывающем потоке
+     * @param robots число роботов
+     * @param robotX координаты роботов
+     * @param robotY координаты роботов
+     */
+    void assign(int robots, double[] robotX, double[] robotY)
+    {
+        if (!assignIncrementally(robots, robotX, robotY))
+        {
+            FullSolve full = prepareFullSolve(robots, robotX, robotY);
+            full.run();
+            apply(full);
+        }
+    }
+
+    /**
+     * Шаг назначения в мире: переносит готовый результат фонового решения
+     * и дорешивает назначение; если нужно полное решение, запускает его
+     * в фоне и сразу возвращается, роботы пока едут по старому назначению
+     * Пока фоновое решение не готово, ничего не перерешивается
+     * @param robots число роботов
+     * @param robotX координаты роботов
+     * @param robotY координаты роботов
+     * @param executor где идет полное решение
+     */
+    void update(int robots, double[] robotX, double[] robotY, Executor executor)
+    {
+        if (solving)
+        {
+            if (!fullSolve.done)
+            {
+                return;
+            }
+            solving = false;
+            apply(fullSolve);
+        }
+        if (dirty && !assignIncrementally(robots, robotX, robotY))
+        {
+            FullSolve full = prepareFullSolve(robots, robotX, robotY);
+            solving = true;
+            executor.execute(full);
+        }
+    }
+
+    /**
+     * Дорешивает назначение для текущих позиций роботов
+     * @param robots число роботов
+     * @param robotX координаты роботов
+     * @param robotY координаты роботов
+     * @return false, если нужно полное решение
+     */
+    private boolean assignIncrementally(int robots, double[] robotX, double[] robotY)
+    {
+        dirty = false;
+        if (robotTarget.length < robots)
+        {
+            robotTarget = Arrays.copyOf(robotTarget, robotX.length);
+            robotPrice = Arrays.copyOf(robotPrice, robotX.length);
+            robotFresh = Arrays.copyOf(robotFresh, robotX.length);
+            checkedX = Arrays.copyOf(checkedX, robotX.length);
+            checkedY = Arrays.copyOf(checkedY, robotX.length);
+        }
+        Arrays.fill(robotTarget, robotCount, robots, -1);
+        Arrays.fill(robotPrice, robotCount, robots, minPrice(robotPrice, robotCount));
+        Arrays.fill(robotFresh, robotCount, robots, true);
+        //новые роботы свободны или сами отмечены, их сдвиг не считается
+        System.arraycopy(robotX, robotCount, checkedX, robotCount, robots - robotCount);
+        System.arraycopy(robotY, robotCount, checkedY, robotCount, robots - robotCount);
+        robotCount = robots;
+
+        if (robotsBid != robotCount <= count)
+        {
+            //стороны поменялись, старые цены ничего не значат
+            robotsBid = !robotsBid;
+            Arrays.fill(targetPrice, 0, count, 0);
+            Arrays.fill(robotPrice, 0, robotCount, 0);
+            return false;
+        }
+        boolean drifted = maxDrift(robotX, robotY) > DRIFT_LIMIT;
+        boolean resolved = robotsBid
+                ? resolve(robotCount, robotX, robotY, count, targetX, targetY,
+                        robotTarget, targetRobot, targetPrice, targetFresh, drifted)
+                : resolve(count, targetX, targetY, robotCount, robotX, robotY,
+                        targetRobot, robotTarget, robotPrice, robotFresh, drifted);
+        if (!resolved)
+        {
+            return false;
+        }
+        Arrays.fill(targetFresh, 0, count, false);
+        Arrays.fill(robotFresh, 0, robotCount, false);
+        if (drifted)
+        {
+            System.arraycopy(robotX, 0, checkedX, 0, robotCount);
+            System.arraycopy(robotY, 0, checkedY, 0, robotCount);
+        }
+        return true;
+    }
+
+    /**
+     * Копирует все, что нужно полному решению, чтобы оно шло без блокировки
+     * @param robots число роботов
+     * @param robotX координаты роботов
+     * @param robotY координаты роботов
+     * @return решение, готовое к запуску
+     */
+    private FullSolve prepareFullSolve(int robots, double[] robotX, double[] robotY)
+    {
+        if (fullSolve == null)
+        {
+            fullSolve = new FullSolve();
+        }
+        FullSolve full = fullSolve;
+        full.done = false;
+        full.solved = false;
+        full.generation = generation;
+        full.robotsBid = robotsBid;
+        full.robotCount = robots;
+        full.targetCount = count;
+        if (full.robotX.length < robots)
+        {
+            full.robotX = new double[robotX.length];
+            full.robotY = new double[robotX.length];
+            full.robotTarget = new int[robotX.length];
+        }
+        if (full.targetX.length < count)
+        {
+            full.targetX = new double[targetX.length];
+            full.targetY = new double[targetX.length];
+            full.targetId = new long[targetX.length];
+            full.targetRobot = new int[targetX.length];
+            full.idOrder = new long[targetX.length];
+        }
+        if (full.price.length < Math.max(robots, count))
+        {
+            full.price = new double[Math.max(robotX.length, targetX.length)];
+        }
+        System.arraycopy(robotX, 0, full.robotX, 0, robots);
+        System.arraycopy(robotY, 0, full.robotY, 0, robots);
+        System.arraycopy(targetX, 0, full.targetX, 0, count);
+        System.arraycopy(targetY, 0, full.targetY, 0, count);
+        System.arraycopy(targetId, 0, full.targetId, 0, count);
+        //цены служат начальными для торгов
+        if (robotsBid)
+        {
+            System.arraycopy(targetPrice, 0, full.price, 0, count);
+        }
+        else
+        {
+            System.arraycopy(robotPrice, 0, full.price, 0, robots);
+        }
+        return full;
+    }
+
+    /**
+     * Переносит результат полного решения: цели, которых уже нет, выпадают
+     * вместе с назначениями, цели, пришедшие за время решения, остаются
+     * свободными и отмеченными для дорешивания
+     * Сдвиг роботов отсчитывается от позиций, для которых шло решение
+     * @param full законченное решение
+     */
+    private void apply(FullSolve full)
+    {
+        if (full.generation != generation)
+        {
+            //очередь очищали, пока шло решение
+            return;
+        }
+        if (!full.solved)
+        {
+            //решение упало, попробуем еще раз на следующем шаге
+            dirty = true;
+            return;
+        }
+        Arrays.fill(robotTarget, 0, robotCount, -1);
+        for (int target = 0; target < count; target++)
+        {
+            int old = full.find(targetId[target]);
+            int robot = old < 0 ? -1 : full.targetRobot[old];
+            targetRobot[target] = robot;
+            targetFresh[target] = old < 0;
+            if (robot >= 0)
+            {
+                robotTarget[robot] = target;
+            }
+            if (robotsBid && old >= 0)
+            {
+                targetPrice[target] = full.price[old];
+            }
+        }
+        for (int robot = 0; robot < robotCount; robot++)
+        {
+            //робот-объект, чья цель исчезла, освободился
+            robotFresh[robot] = robotTarget[robot] < 0 && full.robotTarget[robot] >= 0;
+        }
+        if (robotsBid)
+        {
+            //новые цели не дороже прочих, как при добавлении
+            double min = Double.POSITIVE_INFINITY;
+            for (int target = 0; target < count; target++)
+            {
+                if (!targetFresh[target])
+                {
+                    min = Math.min(min, targetPrice[target]);
+                }
+            }
+            for (int target = 0; target < count; target++)
+            {
+                if (targetFresh[target])
+                {
+                    targetPrice[target] = min == Double.POSITIVE_INFINITY ? 0 : min;
+                }
+            }
+        }
+        else
+        {
+            System.arraycopy(full.price, 0, robotPrice, 0, robotCount);
+        }
+        System.arraycopy(full.robotX, 0, checkedX, 0, robotCount);
+        System.arraycopy(full.robotY, 0, checkedY, 0, robotCount);
+    }
+
+    /**
+     * Дорешивание: участники, для которых новый или освободившийся объект
+     * стал выгоднее их собственного, освобождаются и торгуются заново,
+     * пока освобождать больше некого; затем обратные торги опускают цены
+     * свободных объектов до цен занятых
+     * Число освобождений, ставок и шагов обратных торгов ограничено, иначе
+     * полное решение быстрее
+     * @param fresh новые и освободившиеся объекты
+     * @param drifted сравнить каждого участника со всеми объектами
+     * @return удалось ли обойтись без полного решения
+     */
+    private boolean resolve(int bidderCount, double[] bidderX, double[] bidderY,
+                            int objectCount, double[] objectX, double[] objectY,
+                            int[] bidderObject, int[] objectBidder, double[] price,
+                            boolean[] fresh, boolean drifted)
+    {
+        int budget = RESOLVE_LIMIT - countFree(bidderObject, bidderCount);
+        int bids = BIDS_PER_BIDDER * Math.max(bidderCount, RESOLVE_LIMIT);
+        boolean everything = drifted;
+        while (budget >= 0)
+        {
+            int released = solver.repair(bidderCount, bidderX, bidderY, objectCount, objectX, objectY,
+                    bidderObject, objectBidder, price, fresh, everything, EPSILON);
+            everything = false;
+            budget -= released;
+            if (budget < 0)
+            {
+                break;
+            }
+            int made = solver.resolve(bidderCount, bidderX, bidderY, objectCount, objectX, objectY,
+                    bidderObject, objectBidder, price, EPSILON, bids);
+            if (made < 0)
+            {
+                break;
+            }
+            bids -= made;
+            if (released == 0)
+            {
+                return solver.reverse(bidderCount, bidderX, bidderY, objectCount, objectX, objectY,
+                        bidderObject, objectBidder, price, EPSILON, bids);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Свободный робот, который торгуется сам, торгуется уже с нового места,
+     * а свободный робот-объект просто проверяется заново, поэтому их сдвиг
+     * в расчет не идет
+     * @return наибольший сдвиг занятого робота с последней полной проверки
+     */
+    private double maxDrift(double[] robotX, double[] robotY)
+    {
+        double max = 0;
+        for (int i = 0; i < robotCount; i++)
+        {
+            if (robotTarget[i] < 0)
+            {
+                if (robotX[i] != checkedX[i] || robotY[i] != checkedY[i])
+                {
+                    checkedX[i] = robotX[i];
+                    checkedY[i] = robotY[i];
+                    robotFresh[i] |= !robotsBid;
+                }
+                continue;
+            }
+            double diffX = robotX[i] - checkedX[i];
+            double diffY = robotY[i] - checkedY[i];
+            max = Math.max(max, diffX * diffX + diffY * diffY);
+        }
+        return Math.sqrt(max);
+    }
+
+    private static int countFree(int[] assignment, int size)
+    {
+        int free = 0;
+        for (int i = 0; i < size; i++)
+        {
+            if (assignment[i] < 0)
+            {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    private static double minPrice(double[] price, int size)
+    {
+        double min = size == 0 ? 0 : price[0];
+        for (int i = 1; i < size; i++)
+        {
+            min = Math.min(min, price[i]);
+        }
+        return min;
+    }
+
+    /**
+     * Полное решение над копией очереди, может идти в другом потоке
+     * Копия переиспользуется: новое решение готовится только после того,
+     * как прошлое закончилось и перенесено
+     */
+    private static final class FullSolve implements Runnable
+    {
+        //свой решатель, потому что решатель очереди нельзя делить между потоками
+        private final AuctionSolver solver = new AuctionSolver();
+        private long generation;
+        private boolean robotsBid;
+        private int robotCount;
+        private int targetCount;
+        private double[] robotX = new double[0];
+        private double[] robotY = new double[0];
+        private double[] targetX = new double[0];
+        private double[] targetY = new double[0];
+        private long[] targetId = new long[0];
+        //цены объектов: целей, если торгуются роботы, иначе роботов
+        private double[] price = new double[0];
+        private int[] robotTarget = new int[0];
+        private int[] targetRobot = new int[0];
+        //ключи "постоянный номер, номер в копии" по возрастанию
+        private long[] idOrder = new long[0];
+        //результат готов; запись перед флагом видна тому, кто прочел флаг
+        private volatile boolean done;
+        private boolean solved;
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                //обратные торги сразу после полного решения: цены лишних объектов после
+                //него бывают высокими, и их снижение - длинная цепочка обменов
+                if (robotsBid)
+                {
+                    solver.solve(robotCount, robotX, robotY, targetCount, targetX, targetY,
+                            robotTarget, targetRobot, price, EPSILON);
+                    solver.reverse(robotCount, robotX, robotY, targetCount, targetX, targetY,
+                            robotTarget, targetRobot, price, EPSILON, Integer.MAX_VALUE);
+                }
+                else
+                {
+                    solver.solve(targetCount, targetX, targetY, robotCount, robotX, robotY,
+                            targetRobot, robotTarget, price, EPSILON);
+                    solver.reverse(targetCount, targetX, targetY, robotCount, robotX, robotY,
+                            targetRobot, robotTarget, price, EPSILON, Integer.MAX_VALUE);
+                }
+                for (int i = 0; i < targetCount; i++)
+                {
+                    idOrder[i] = targetId[i] << INDEX_BITS | i;
+                }
+                Arrays.sort(idOrder, 0, targetCount);
+                solved = true;
+            }
+            finally
+            {
+                done = true;
+            }
+        }
+
+        /**
+         * @param id постоянный номер цели
+         * @return номер цели в копии или -1, если ее тогда не было
+         */
+        int find(long id)
+        {
+            int position = Arrays.binarySearch(idOrder, 0, targetCount, id << INDEX_BITS);
+            if (position < 0)
+            {
+                position = -position - 1;
+            }
+            if (position < targetCount && idOrder[position] >>> INDEX_BITS == id)
+            {
+                return (int)(idOrder[position] & ((1 << INDEX_BITS) - 1));
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,532 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Модель игрового мира: роботы и цели, к которым они едут
+ * Либо все роботы едут к одной общей цели, либо цели копятся в очереди
+ * и каждой назначается свой робот так, чтобы суммарный путь был минимальным
+ * Мир один на все приложение, его шагает WorldScheduler, а окна игры
+ * только читают снимки состояния через {@link #snapshot()}
+ * Координаты роботов хранятся в параллельных массивах, чтобы шаг
+ * модели оставался дешевым при большом числе роботов
+ * Полное решение назначения целей занимает десятки миллисекунд, поэтому
+ * идет в фоновом потоке без блокировки мира: шаги и снимки не ждут его,
+ * зато роботы несколько шагов едут по старому назначению, а пришедшие
+ * за это время цели ждут результата
+ */
+public class World
+{
+    //максимальная линейная скорость
+    public static final double MAX_VELOCITY = 0.1;
+    //максимальная углавая скорость робота
+    public static final double MAX_ANGULAR_VELOCITY = 0.001;
+
+    //координты роботов, которые могут изменяться
+    private int robotCount;
+    private double[] robotX = new double[1];
+    private double[] robotY = new double[1];
+    private double[] robotDirection = new double[1];
+
+    //куда едет каждый робот; робот без цели стоит
+    private double[] goalX = new double[1];
+    private double[] goalY = new double[1];
+    private boolean[] goalActive = new boolean[1];
+
+    //координаты общей цели
+    private double targetX = 150;
+    private double targetY = 100;
+    //очередь целей для группы, используется вместо общей цели
+    private final TargetQueue targets = new TargetQueue();
+    private boolean queueMode;
+    //поток полных решений назначения, общий для всех миров
+    private static final ExecutorService ASSIGNER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "target assigner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //способ поворота к цели
+    private volatile SteeringMode steeringMode = SteeringMode.Dubins;
+    //команда регулятора, переиспользуется на каждом шаге
+    private final SteeringCommand command = new SteeringCommand();
+
+    //слушатели шагов, массив заменяется целиком, чтобы шаг не выделял память
+    private volatile StepListener[] stepListeners = new StepListener[0];
+
+    //номер версии мира, растет при каждом изменении
+    private long version;
+    //последний выданный снимок, пересоздается только при изменении мира
+    private WorldSnapshot snapshot;
+
+    /**
+     * Создает мир с одним роботом в начальной позиции
+     */
+    public World()
+    {
+        addRobot(100, 100, 0);
+    }
+
+    /**
+     * Добавляет робота
+     * @param x координата
+     * @param y координата
+     * @param direction направление в радианах
+     */
+    public synchronized void addRobot(double x, double y, double direction)
+    {
+        if (robotCount == robotX.length)
+        {
+            int capacity = robotCount * 2;
+            robotX = Arrays.copyOf(robotX, capacity);
+            robotY = Arrays.copyOf(robotY, capacity);
+            robotDirection = Arrays.copyOf(robotDirection, capacity);
+            goalX = Arrays.copyOf(goalX, capacity);
+            goalY = Arrays.copyOf(goalY, capacity);
+            goalActive = Arrays.copyOf(goalActive, capacity);
+        }
+        robotX[robotCount] = x;
+        robotY[robotCount] = y;
+        robotDirection[robotCount] = asNormalizedRadians(direction);
+        goalX[robotCount] = targetX;
+        goalY[robotCount] = targetY;
+        goalActive[robotCount] = !queueMode;
+        robotCount++;
+        if (queueMode)
+        {
+            targets.markDirty();
+        }
+        version++;
+    }
+
+    /**
+     * Ставит робота в заданную позицию
+     * @param i номер робота
+     * @param x координата
+     * @param y координата
+     * @param direction направление в радианах
+     */
+    public synchronized void setRobotPose(int i, double x, double y, double direction)
+    {
+        robotX[i] = x;
+        robotY[i] = y;
+        robotDirection[i] = asNormalizedRadians(direction);
+        version++;
+    }
+
+    public SteeringMode getSteeringMode()
+    {
+        return steeringMode;
+    }
+
+    /**
+     * Меняет способ поворота к цели для всех роботов
+     * @param steeringMode новый способ
+     */
+    public void setSteeringMode(SteeringMode steeringMode)
+    {
+        this.steeringMode = steeringMode;
+    }
+
+    /**
+     * устанавливает новую позицию общей цели для всех роботов
+     * Очередь целей при этом очищается
+     * @param x координата цели
+     * @param y координата цели
+     */
+    public synchronized void setTargetPosition(double x, double y)
+    {
+        targetX = x;
+        targetY = y;
+        queueMode = false;
+        targets.clear();
+        for (int i = 0; i < robotCount; i++)
+        {
+            goalX[i] = x;
+            goalY[i] = y;
+            goalActive[i] = true;
+        }
+        version++;
+    }
+
+    /**
+     * Добавляет цель в очередь, на нее поедет один робот
+     * Назначение пересчитывается на ближайшем шаге, доехавший робот
+     * убирает свою цель из очереди и получает следующую
+     * Первая цель в очереди отменяет общую цель
+     * @param x координата цели
+     * @param y координата цели
+     */
+    public synchronized void enqueueTarget(double x, double y)
+    {
+        if (!queueMode)
+        {
+            queueMode = true;
+            Arrays.fill(goalActive, 0, robotCount, false);
+        }
+        targets.add(x, y);
+        version++;
+    }
+
+    /**
+     * Снимок текущего состояния мира
+     * Пока мир не меняется, возвращается один и тот же объект, поэтому
+     * любое число окон может читать его без лишних копий
+     * @return неизменяемый снимок
+     */
+    public synchronized WorldSnapshot snapshot()
+    {
+        if (snapshot == null || snapshot.getVersion() != version)
+        {
+            int targetCount = queueMode ? targets.size() : 1;
+            double[] snapshotTargetX = new double[targetCount];
+            double[] snapshotTargetY = new double[targetCount];
+            for (int i = 0; i < targetCount; i++)
+            {
+                snapshotTargetX[i] = queueMode ? targets.getX(i) : targetX;
+                snapshotTargetY[i] = queueMode ? targets.getY(i) : targetY;
+            }
+            snapshot = new WorldSnapshot(version, robotCount,
+                    Arrays.copyOf(robotX, robotCount),
+                    Arrays.copyOf(robotY, robotCount),
+                    Arrays.copyOf(robotDirection, robotCount),
+                    snapshotTargetX, snapshotTargetY);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Записывает состояние мира в буфер прямо из массивов, без снимка,
+     * поэтому частая отправка состояния не выделяет память
+     * Формат: версия(long) число_роботов(int) число_целей(int), для каждой
+     * цели x(float) y(float) и для каждого робота x(float) y(float) направление(float)
+     * @param buffer буфер в режиме записи
+     * @param knownVersion версия, которая уже была записана раньше
+     * @return сколько байт записано; 0 - если мир не менялся с knownVersion;
+     *         со знаком минус - сколько места нужно, если в буфере его не хватило,
+     *         тогда ничего не записывается
+     */
+    public synchronized int writeSnapshot(ByteBuffer buffer, long knownVersion)
+    {
+        if (version == knownVersion)
+        {
+            return 0;
+        }
+        int targetCount = queueMode ? targets.size() : 1;
+        int size = 8 + 4 + 4 + targetCount * 2 * 4 + robotCount * 3 * 4;
+        if (buffer.remaining() < size)
+        {
+            return -size;
+        }
+        buffer.putLong(version).putInt(robotCount).putInt(targetCount);
+        for (int i = 0; i < targetCount; i++)
+        {
+            buffer.putFloat((float)(queueMode ? targets.getX(i) : targetX));
+            buffer.putFloat((float)(queueMode ? targets.getY(i) : targetY));
+        }
+        for (int i = 0; i < robotCount; i++)
+        {
+            buffer.putFloat((float)robotX[i]);
+            buffer.putFloat((float)robotY[i]);
+            buffer.putFloat((float)robotDirection[i]);
+        }
+        return size;
+    }
+
+    /**
+     * обновляет модель движения всех роботов
+     * вычисляет скорость и направление к цели и перемещает каждого робота
+     * @param duration длительность шага в мс
+     * @return двигался ли хоть один робот
+     */
+    public synchronized boolean step(double duration)
+    {
+        if (queueMode && targets.needsUpdate())
+        {
+            assignTargets();
+        }
+        boolean dubins = steeringMode == SteeringMode.Dubins;
+        boolean moved = false;
+        int queued = targets.size();
+        for (int i = 0; i < robotCount; i++)
+        {
+            moved |= dubins ? stepRobotDubins(i, duration) : stepRobot(i, duration);
+        }
+        if (queued != targets.size())
+        {
+            //доехавшие роботы убрали свои цели
+            version++;
+        }
+        if (moved)
+        {
+            version++;
+            for (StepListener listener : stepListeners)
+            {
+                listener.onWorldStepped(this);
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Подписывает слушателя на шаги модели
+     * @param listener слушатель
+     */
+    public synchronized void addStepListener(StepListener listener)
+    {
+        StepListener[] listeners = Arrays.copyOf(stepListeners, stepListeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        stepListeners = listeners;
+    }
+
+    /**
+     * Отписывает слушателя от шагов модели
+     * @param listener слушатель
+     */
+    public synchronized void removeStepListener(StepListener listener)
+    {
+        StepListener[] listeners = new StepListener[stepListeners.length];
+        int count = 0;
+        for (StepListener existing : stepListeners)
+        {
+            if (existing != listener)
+            {
+                listeners[count++] = existing;
+            }
+        }
+        stepListeners = Arrays.copyOf(listeners, count);
+    }
+
+    /**
+     * Число роботов; без блокировки, только для StepListener
+     * или кода, который сам держит блокировку мира
+     * @return число роботов
+     */
+    public int getRobotCount()
+    {
+        return robotCount;
+    }
+
+    /**
+     * Координата робота; без блокировки, только для StepListener
+     * @param i номер робота
+     * @return координата x
+     */
+    public double getRobotX(int i)
+    {
+        return robotX[i];
+    }
+
+    /**
+     * Координата робота; без блокировки, только для StepListener
+     * @param i номер робота
+     * @return координата y
+     */
+    public double getRobotY(int i)
+    {
+        return robotY[i];
+    }
+
+    /**
+     * Направление робота; без блокировки, только для StepListener
+     * @param i номер робота
+     * @return направление в радианах
+     */
+    public double getRobotDirection(int i)
+    {
+        return robotDirection[i];
+    }
+
+    /**
+     * Перерешивает назначение целей и переносит его в цели роботов
+     * Полное решение только запускается, его результат подхватят следующие шаги
+     */
+    private void assignTargets()
+    {
+        targets.update(robotCount, robotX, robotY, ASSIGNER);
+        for (int i = 0; i < robotCount; i++)
+        {
+            int target = targets.getRobotTarget(i);
+            goalActive[i] = target >= 0;
+            if (target >= 0)
+            {
+                goalX[i] = targets.getX(target);
+                goalY[i] = targets.getY(target);
+            }
+        }
+    }
+
+    /**
+     * Проверяет, доехал ли робот до своей цели
+     * Доехавший до цели из очереди робот освобождается
+     * @param i номер робота
+     * @return нужно ли роботу ехать дальше
+     */
+    private boolean needsToMove(int i)
+    {
+        if (!goalActive[i])
+        {
+            return false;
+        }
+        if (distance(goalX[i], goalY[i], robotX[i], robotY[i]) >= 0.5)
+        {
+            return true;
+        }
+        if (queueMode)
+        {
+            targets.arrived(i);
+            goalActive[i] = false;
+        }
+        return false;
+    }
+
+    /**
+     * шаг одного робота к цели простым регулятором
+     * @param i номер робота
+     * @param duration длительность шага в мс
+     * @return сдвинулся ли робот
+     */
+    private boolean stepRobot(int i, double duration)
+    {
+        if (!needsToMove(i))
+        {
+            return false;
+        }
+        double velocity = MAX_VELOCITY;
+        double angleToTarget = angleTo(robotX[i], robotY[i], goalX[i], goalY[i]);
+        double angularVelocity = 0;
+        //нужно повернуть на право (против часовой стрелки)
+        if (angleToTarget > robotDirection[i])
+        {
+            angularVelocity = MAX_ANGULAR_VELOCITY;
+        }
+        //нужно повернуть на лево
+        if (angleToTarget < robotDirection[i])
+        {
+            angularVelocity = -MAX_ANGULAR_VELOCITY;
+        }
+
+        //перемещение
+        moveRobot(i, velocity, angularVelocity, duration);
+        return true;
+    }
+
+    /**
+     * шаг одного робота по пути Дубинса
+     * @param i номер робота
+     * @param duration длительность шага в мс
+     * @return сдвинулся ли робот
+     */
+    private boolean stepRobotDubins(int i, double duration)
+    {
+        if (!needsToMove(i))
+        {
+            return false;
+        }
+        DubinsPlanner.plan(robotX[i], robotY[i], robotDirection[i], goalX[i], goalY[i], duration, command);
+        moveRobot(i, command.velocity, command.angularVelocity, duration);
+        return true;
+    }
+
+    /**
+     * перемещение робота с линейной и угловой скоростями в течении определенного времени
+     * @param i номер робота
+     * @param velocity линейная скорость
+     * @param angularVelocity угловая скорость
+     * @param duration длительность движения в мс
+     */
+    private void moveRobot(int i, double velocity, double angularVelocity, double duration)
+    {
+        velocity = applyLimits(velocity, 0, MAX_VELOCITY);
+        angularVelocity = applyLimits(angularVelocity, -MAX_ANGULAR_VELOCITY, MAX_ANGULAR_VELOCITY);
+        double direction = robotDirection[i];
+        //вычисление новой позиции с учетом криволинейного движения
+        double newX = robotX[i] + velocity / angularVelocity *
+            (Math.sin(direction  + angularVelocity * duration) -
+                Math.sin(direction));
+        //если новое значение х не равно бесконечность (деление на 0, те angularVelocity=0) то криволиненый
+        //иначе прямолинейно
+        if (!Double.isFinite(newX))//isFinite - бесконечность
+        {
+            newX = robotX[i] + velocity * duration * Math.cos(direction);
+        }
+        double newY = robotY[i] - velocity / angularVelocity *
+            (Math.cos(direction  + angularVelocity * duration) -
+                Math.cos(direction));
+        if (!Double.isFinite(newY))
+        {
+            newY = robotY[i] + velocity * duration * Math.sin(direction);
+        }
+        robotX[i] = newX;
+        robotY[i] = newY;
+        robotDirection[i] = asNormalizedRadians(direction + angularVelocity * duration);
+    }
+
+    /**
+     * вычисляет растояние между точками
+     * @param x1
+     * @param y1
+     * @param x2
+     * @param y2
+     * @return растояние между точками
+     */
+    private static double distance(double x1, double y1, double x2, double y2)
+    {
+        double diffX = x1 - x2;
+        double diffY = y1 - y2;
+        return Math.sqrt(diffX * diffX + diffY * diffY);
+    }
+
+    /**
+     * вычисляет угол точки от from к to
+     * @param fromX
+     * @param fromY
+     * @param toX
+     * @param toY
+     * @return нормализованный угол в радианах от y до х осей
+     */
+    private static double angleTo(double fromX, double fromY, double toX, double toY)
+    {
+        double diffX = toX - fromX;
+        double diffY = toY - fromY;
+
+        return asNormalizedRadians(Math.atan2(diffY, diffX));
+    }
+
+    /**
+     * ограничивает значение заданным диапазоном
+     * @param value
+     * @param min
+     * @param max
+     * @return
+     */
+    private static double applyLimits(double value, double min, double max)
+    {
+        if (value < min)
+            return min;
+        if (value > max)
+            return max;
+        return value;
+    }
+
+    /**
+     *  Нормаолизация диапазона от 0 до 2ПИ
+     * @param angle угол в радианах
+     * @return нормализованный угол
+     */
+    private static double asNormalizedRadians(double angle)
+    {
+        while (angle < 0)
+        {
+            angle += 2*Math.PI;
+        }
+        while (angle >= 2*Math.PI)
+        {
+            angle -= 2*Math.PI;
+        }
+        return angle;
+    }
+}
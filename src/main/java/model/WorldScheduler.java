@@ -0,0 +1,84 @@
+package model;
+
+import perf.PerformanceMonitor;
+import perf.TickEvent;
+
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Единственный источник шагов модели
+ * Шагает мир по таймеру независимо от того, сколько окон его показывает
+ */
+public class WorldScheduler
+{
+    //период шага модели в мс
+    private static final int TICK_PERIOD = 10;
+
+    private final World world;
+    //таймер для генерации событий обновления, существует пока модель запущена
+    private Timer timer;
+
+    public WorldScheduler(World world)
+    {
+        this.world = world;
+    }
+
+    /**
+     * Запускает шаги модели, повторный вызов ничего не делает
+     */
+    public synchronized void start()
+    {
+        if (timer != null)
+        {
+            return;
+        }
+        timer = new Timer("events generator", true);
+        //обвновление роботов
+        timer.schedule(new TimerTask()
+        {
+            @Override
+            public void run()
+            {
+                //при выключенных замерах здесь только одна проверка
+                if (PerformanceMonitor.isEnabled())
+                {
+                    TickEvent event = new TickEvent();
+                    event.begin();
+                    long start = System.nanoTime();
+                    tick();
+                    PerformanceMonitor.recordTick(event, start, scheduledExecutionTime());
+                }
+                else
+                {
+                    tick();//обвноить позиции роботов
+                }
+            }
+        }, 0, TICK_PERIOD);
+    }
+
+    /**
+     * Один шаг модели, такой же, как по таймеру
+     */
+    public void tick()
+    {
+        world.step(TICK_PERIOD);
+    }
+
+    /**
+     * Останавливает шаги модели
+     */
+    public synchronized void stop()
+    {
+        if (timer != null)
+        {
+            timer.cancel();
+            timer = null;
+        }
+    }
+
+    public synchronized boolean isRunning()
+    {
+        return timer != null;
+    }
+}
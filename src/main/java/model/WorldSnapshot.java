@@ -0,0 +1,75 @@
+package model;
+
+/**
+ * Неизменяемый снимок состояния мира для отрисовки
+ * Массивы не копируются при чтении, поэтому их нельзя изменять
+ */
+public class WorldSnapshot
+{
+    private final long version;
+    private final int robotCount;
+    private final double[] robotX;
+    private final double[] robotY;
+    private final double[] robotDirection;
+    private final double[] targetX;
+    private final double[] targetY;
+
+    WorldSnapshot(long version, int robotCount,
+                  double[] robotX, double[] robotY, double[] robotDirection,
+                  double[] targetX, double[] targetY)
+    {
+        this.version = version;
+        this.robotCount = robotCount;
+        this.robotX = robotX;
+        this.robotY = robotY;
+        this.robotDirection = robotDirection;
+        this.targetX = targetX;
+        this.targetY = targetY;
+    }
+
+    /**
+     * @return версия мира, из которой сделан снимок
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public int getRobotCount()
+    {
+        return robotCount;
+    }
+
+    public double getRobotX(int i)
+    {
+        return robotX[i];
+    }
+
+    public double getRobotY(int i)
+    {
+        return robotY[i];
+    }
+
+    public double getRobotDirection(int i)
+    {
+        return robotDirection[i];
+    }
+
+    /**
+     * @return число целей: общая цель или все цели из очереди
+     */
+    public int getTargetCount()
+    {
+        return targetX.length;
+    }
+
+    public double getTargetX(int i)
+    {
+        return targetX[i];
+    }
+
+    public double getTargetY(int i)
+    {
+        return targetY[i];
+    }
+}
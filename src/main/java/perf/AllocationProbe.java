@@ -0,0 +1,49 @@
+package perf;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Замер памяти, которую выделяет операция в текущем потоке
+ * Использует счетчик выделенных байт потока из com.sun.management.ThreadMXBean
+ */
+public final class AllocationProbe
+{
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+    private AllocationProbe()
+    {
+    }
+
+    /**
+     * @return поддерживает ли JVM подсчет выделенной памяти
+     */
+    public static boolean isSupported()
+    {
+        return THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Сколько байт в среднем выделяет одна операция после прогрева
+     * Прогрев нужен, чтобы JIT успел скомпилировать код и убрать
+     * временные объекты, и чтобы отработали ленивые инициализации
+     * @param operation операция
+     * @param warmup сколько раз выполнить до замера
+     * @param iterations сколько раз выполнить при замере
+     * @return байт на операцию
+     */
+    public static double bytesPerOperation(Runnable operation, int warmup, int iterations)
+    {
+        for (int i = 0; i < warmup; i++)
+        {
+            operation.run();
+        }
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++)
+        {
+            operation.run();
+        }
+        long after = THREADS.getCurrentThreadAllocatedBytes();
+        return (double)(after - before) / iterations;
+    }
+}
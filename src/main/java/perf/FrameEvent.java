@@ -0,0 +1,24 @@
+package perf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Событие JFR для одной отрисовки игрового поля
+ * Длительность события - это время отрисовки
+ */
+@Name("robots.Frame")
+@Label("Game Frame")
+@Category({"Robots", "Rendering"})
+@Description("Одна отрисовка игрового поля")
+public class FrameEvent extends Event
+{
+    @Label("Dispatch Delay")
+    @Description("Сколько запрос на перерисовку ждал в очереди событий")
+    @Timespan(Timespan.NANOSECONDS)
+    public long dispatchDelay;
+}
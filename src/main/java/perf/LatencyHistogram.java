@@ -0,0 +1,131 @@
+package perf;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма задержек в стиле HDR: значения в наносекундах раскладываются
+ * по корзинам, где на каждую степень двойки приходится 16 подкорзин,
+ * поэтому относительная погрешность не превышает ~6% при любом порядке величин
+ * Запись не выделяет память и не берет блокировок, поэтому ее можно
+ * вызывать из таймеров и из потока отрисовки
+ */
+public class LatencyHistogram
+{
+    //точные корзины для самых маленьких значений
+    private static final int LINEAR_BUCKETS = 32;
+    //подкорзины на каждую степень двойки
+    private static final int SUB_BUCKETS = 16;
+    //до 2^47 нс (около 39 часов) хватит с запасом
+    private static final int BUCKET_COUNT = 48 * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    public LatencyHistogram(String name)
+    {
+        this.name = name;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Записывает одно значение
+     * @param nanos длительность в наносекундах, отрицательные считаются нулем
+     */
+    public void record(long nanos)
+    {
+        counts.incrementAndGet(indexOf(nanos));
+    }
+
+    /**
+     * Переносит накопленные значения в массив и обнуляет гистограмму,
+     * так получается гистограмма за интервал между вызовами
+     * @param target массив длины {@link #bucketCount()}, значения прибавляются
+     * @return сколько значений было перенесено
+     */
+    public long drainInto(long[] target)
+    {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            long count = counts.getAndSet(i, 0);
+            target[i] += count;
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return размер массива для {@link #drainInto(long[])}
+     */
+    public static int bucketCount()
+    {
+        return BUCKET_COUNT;
+    }
+
+    /**
+     * Значение, ниже которого лежит заданная доля записей
+     * @param bucketCounts массив, собранный через {@link #drainInto(long[])}
+     * @param percentile процентиль от 0 до 100
+     * @return верхняя граница корзины в наносекундах, 0 если записей не было
+     */
+    public static long valueAtPercentile(long[] bucketCounts, double percentile)
+    {
+        long total = 0;
+        for (long count : bucketCounts)
+        {
+            total += count;
+        }
+        if (total == 0)
+        {
+            return 0;
+        }
+        long rank = Math.max(1, (long)Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < bucketCounts.length; i++)
+        {
+            seen += bucketCounts[i];
+            if (seen >= rank)
+            {
+                return highestValueOf(i);
+            }
+        }
+        return highestValueOf(bucketCounts.length - 1);
+    }
+
+    /**
+     * номер корзины для значения
+     * @param value значение в наносекундах
+     * @return номер корзины
+     */
+    static int indexOf(long value)
+    {
+        if (value < LINEAR_BUCKETS)
+        {
+            return value < 0 ? 0 : (int)value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - 4;
+        int index = shift * SUB_BUCKETS + (int)(value >>> shift);
+        return Math.min(index, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * наибольшее значение, которое попадает в корзину
+     * @param index номер корзины
+     * @return значение в наносекундах
+     */
+    static long highestValueOf(int index)
+    {
+        if (index < LINEAR_BUCKETS)
+        {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
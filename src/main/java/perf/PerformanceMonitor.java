@@ -0,0 +1,162 @@
+package perf;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сбор показателей производительности: длительность шагов модели и отрисовки,
+ * опоздания таймеров, пропущенные кадры
+ * Пока замеры выключены, вызывающий код проверяет только {@link #isEnabled()}
+ * и идет по обычному пути, поэтому цена выключенных замеров - одно ветвление
+ * Замеры включаются, пока есть хотя бы один потребитель (например, панель
+ * производительности), или свойством -Drobots.perf=true для записи JFR
+ */
+public final class PerformanceMonitor
+{
+    //как часто пересчитываются показатели для панели
+    private static final long SAMPLE_INTERVAL_NANOS = 500_000_000L;
+
+    private static final boolean FORCED = Boolean.getBoolean("robots.perf");
+    private static final Object USERS_LOCK = new Object();
+    private static int users;
+    private static volatile boolean enabled = FORCED;
+
+    private static final LatencyHistogram TICK = new LatencyHistogram("tick");
+    private static final LatencyHistogram PAINT = new LatencyHistogram("paint");
+    private static final LatencyHistogram LATENESS = new LatencyHistogram("timer lateness");
+    private static final LatencyHistogram DISPATCH = new LatencyHistogram("dispatch delay");
+
+    private static final AtomicLong TICKS = new AtomicLong();
+    private static final AtomicLong FRAMES = new AtomicLong();
+    private static final AtomicLong DROPPED_FRAMES = new AtomicLong();
+
+    //состояние для подсчета интервальных показателей, доступ под SAMPLE_LOCK
+    private static final Object SAMPLE_LOCK = new Object();
+    private static final long[] intervalCounts = new long[LatencyHistogram.bucketCount()];
+    private static long lastSampleTime = System.nanoTime();
+    private static long lastTicks;
+    private static long lastFrames;
+    private static long lastDropped;
+    private static PerformanceSample lastSample = PerformanceSample.EMPTY;
+
+    private PerformanceMonitor()
+    {
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Регистрирует потребителя показателей, замеры включаются
+     */
+    public static void acquire()
+    {
+        synchronized (USERS_LOCK)
+        {
+            users++;
+            enabled = true;
+        }
+    }
+
+    /**
+     * Снимает потребителя, когда потребителей не осталось, замеры выключаются
+     */
+    public static void release()
+    {
+        synchronized (USERS_LOCK)
+        {
+            users = Math.max(0, users - 1);
+            enabled = FORCED || users > 0;
+        }
+    }
+
+    /**
+     * Завершает замер шага модели
+     * @param event событие JFR, начатое перед шагом
+     * @param startNanos время начала шага по System.nanoTime()
+     * @param scheduledMillis когда таймер должен был запустить шаг
+     */
+    public static void recordTick(TickEvent event, long startNanos, long scheduledMillis)
+    {
+        long duration = System.nanoTime() - startNanos;
+        long lateness = Math.max(0, System.currentTimeMillis() - scheduledMillis) * 1_000_000L;
+        TICK.record(duration);
+        LATENESS.record(lateness);
+        TICKS.incrementAndGet();
+        event.lateness = lateness;
+        event.commit();
+    }
+
+    /**
+     * Завершает замер отрисовки
+     * @param event событие JFR, начатое перед отрисовкой
+     * @param startNanos время начала отрисовки по System.nanoTime()
+     * @param requestedNanos когда была запрошена перерисовка, 0 если перерисовку
+     *                       запросил сам Swing (например, при изменении размера)
+     */
+    public static void recordFrame(FrameEvent event, long startNanos, long requestedNanos)
+    {
+        PAINT.record(System.nanoTime() - startNanos);
+        FRAMES.incrementAndGet();
+        if (requestedNanos != 0)
+        {
+            long delay = startNanos - requestedNanos;
+            DISPATCH.record(delay);
+            event.dispatchDelay = delay;
+        }
+        event.commit();
+    }
+
+    /**
+     * Отмечает кадр, который не успел отрисоваться до следующего запроса
+     */
+    public static void recordDroppedFrame()
+    {
+        DROPPED_FRAMES.incrementAndGet();
+    }
+
+    /**
+     * Показатели за последний интервал, пересчитываются не чаще раза в полсекунды,
+     * поэтому несколько панелей видят одни и те же значения
+     * @return последние показатели
+     */
+    public static PerformanceSample latestSample()
+    {
+        synchronized (SAMPLE_LOCK)
+        {
+            long now = System.nanoTime();
+            long elapsed = now - lastSampleTime;
+            if (elapsed < SAMPLE_INTERVAL_NANOS)
+            {
+                return lastSample;
+            }
+            double seconds = elapsed / 1e9;
+            long ticks = TICKS.get();
+            long frames = FRAMES.get();
+            long dropped = DROPPED_FRAMES.get();
+            lastSample = new PerformanceSample(
+                    (frames - lastFrames) / seconds,
+                    (ticks - lastTicks) / seconds,
+                    drainPercentile(TICK),
+                    drainPercentile(PAINT),
+                    drainPercentile(LATENESS),
+                    drainPercentile(DISPATCH),
+                    dropped - lastDropped,
+                    dropped);
+            lastSampleTime = now;
+            lastTicks = ticks;
+            lastFrames = frames;
+            lastDropped = dropped;
+            return lastSample;
+        }
+    }
+
+    private static long drainPercentile(LatencyHistogram histogram)
+    {
+        Arrays.fill(intervalCounts, 0);
+        histogram.drainInto(intervalCounts);
+        return LatencyHistogram.valueAtPercentile(intervalCounts, 99);
+    }
+}
@@ -0,0 +1,90 @@
+package perf;
+
+/**
+ * Показатели производительности за один интервал измерения
+ */
+public class PerformanceSample
+{
+    static final PerformanceSample EMPTY = new PerformanceSample(0, 0, 0, 0, 0, 0, 0, 0);
+
+    private final double framesPerSecond;
+    private final double ticksPerSecond;
+    private final long tickP99;
+    private final long paintP99;
+    private final long latenessP99;
+    private final long dispatchP99;
+    private final long droppedFrames;
+    private final long totalDroppedFrames;
+
+    PerformanceSample(double framesPerSecond, double ticksPerSecond,
+                      long tickP99, long paintP99, long latenessP99, long dispatchP99,
+                      long droppedFrames, long totalDroppedFrames)
+    {
+        this.framesPerSecond = framesPerSecond;
+        this.ticksPerSecond = ticksPerSecond;
+        this.tickP99 = tickP99;
+        this.paintP99 = paintP99;
+        this.latenessP99 = latenessP99;
+        this.dispatchP99 = dispatchP99;
+        this.droppedFrames = droppedFrames;
+        this.totalDroppedFrames = totalDroppedFrames;
+    }
+
+    public double getFramesPerSecond()
+    {
+        return framesPerSecond;
+    }
+
+    public double getTicksPerSecond()
+    {
+        return ticksPerSecond;
+    }
+
+    /**
+     * @return 99-й процентиль длительности шага модели в наносекундах
+     */
+    public long getTickP99()
+    {
+        return tickP99;
+    }
+
+    /**
+     * @return 99-й процентиль длительности отрисовки в наносекундах
+     */
+    public long getPaintP99()
+    {
+        return paintP99;
+    }
+
+    /**
+     * @return 99-й процентиль опоздания таймера в наносекундах
+     */
+    public long getLatenessP99()
+    {
+        return latenessP99;
+    }
+
+    /**
+     * @return 99-й процентиль ожидания перерисовки в очереди событий в наносекундах
+     */
+    public long getDispatchP99()
+    {
+        return dispatchP99;
+    }
+
+    /**
+     * @return сколько кадров было пропущено за интервал
+     */
+    public long getDroppedFrames()
+    {
+        return droppedFrames;
+    }
+
+    /**
+     * @return сколько кадров было пропущено с момента включения замеров
+     */
+    public long getTotalDroppedFrames()
+    {
+        return totalDroppedFrames;
+    }
+}
@@ -0,0 +1,56 @@
+package perf;
+
+import log.Logger;
+
+/**
+ * Замер фаз запуска приложения
+ * Каждая фаза - это время от предыдущей отметки, результаты пишутся в лог,
+ * отдельно отмечается время до показа первого кадра
+ * Все вызовы идут из main и из потока обработки событий по очереди,
+ * поэтому состояние защищено простой синхронизацией
+ */
+public final class StartupProfiler
+{
+    private static long startTime = System.nanoTime();
+    private static long lastMark = startTime;
+    private static boolean firstFrameShown;
+
+    private StartupProfiler()
+    {
+    }
+
+    /**
+     * Начинает отсчет заново, вызывается первой строкой main
+     */
+    public static synchronized void start()
+    {
+        startTime = System.nanoTime();
+        lastMark = startTime;
+        firstFrameShown = false;
+    }
+
+    /**
+     * Отмечает конец фазы и пишет ее длительность в лог
+     * @param name название фазы
+     */
+    public static synchronized void phase(String name)
+    {
+        long now = System.nanoTime();
+        Logger.debug(String.format("Запуск: %s - %.1f мс", name, (now - lastMark) / 1e6));
+        lastMark = now;
+    }
+
+    /**
+     * Отмечает показ первого кадра, повторные вызовы игнорируются
+     */
+    public static synchronized void firstFrame()
+    {
+        if (firstFrameShown)
+        {
+            return;
+        }
+        firstFrameShown = true;
+        phase("показ главного окна");
+        Logger.debug(String.format("Запуск: до первого кадра - %.1f мс", (lastMark - startTime) / 1e6));
+    }
+}
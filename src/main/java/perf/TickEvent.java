@@ -0,0 +1,24 @@
+package perf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Событие JFR для одного шага модели
+ * Длительность события - это время самого шага
+ */
+@Name("robots.Tick")
+@Label("Simulation Tick")
+@Category({"Robots", "Simulation"})
+@Description("Один шаг модели движения роботов")
+public class TickEvent extends Event
+{
+    @Label("Timer Lateness")
+    @Description("На сколько таймер опоздал с запуском шага")
+    @Timespan(Timespan.NANOSECONDS)
+    public long lateness;
+}
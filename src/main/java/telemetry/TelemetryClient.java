@@ -0,0 +1,141 @@
+package telemetry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Состояние одного подписчика телеметрии
+ * Все буферы прямые и создаются один раз, дальше только переиспользуются:
+ * записи лога копятся в очереди, а из снимков мира отправляется только
+ * самый свежий - пока клиент не дочитал прошлый кадр, новые снимки
+ * просто заменяют друг друга
+ * Используется только из потока сервера
+ */
+class TelemetryClient
+{
+    private final SocketChannel channel;
+    private final SelectionKey key;
+
+    //записи лога, накопленные для отправки (режим записи)
+    private ByteBuffer logQueue;
+    //записи лога, которые отправляются сейчас (режим чтения)
+    private ByteBuffer logOut;
+    //копия кадра со снимком мира, которая отправляется сейчас
+    private ByteBuffer snapshotOut;
+    //буферы для одной записи со сбором: сначала лог, потом снимок
+    private final ByteBuffer[] gather = new ByteBuffer[2];
+
+    //есть ли снимок новее того, что уже отправлен
+    private boolean snapshotPending;
+
+    TelemetryClient(SocketChannel channel, SelectionKey key, int logCapacity, int snapshotCapacity)
+    {
+        this.channel = channel;
+        this.key = key;
+        logQueue = ByteBuffer.allocateDirect(logCapacity);
+        logOut = ByteBuffer.allocateDirect(logCapacity).flip();
+        snapshotOut = ByteBuffer.allocateDirect(snapshotCapacity).flip();
+        gather[0] = logOut;
+        gather[1] = snapshotOut;
+    }
+
+    SocketChannel getChannel()
+    {
+        return channel;
+    }
+
+    /**
+     * Отмечает, что появился новый снимок, сам кадр копируется
+     * только перед отправкой, поэтому медленный клиент получит последний
+     */
+    void markSnapshotPending()
+    {
+        snapshotPending = true;
+    }
+
+    /**
+     * Место для новой записи лога
+     * @param size размер записи в байтах
+     * @return буфер для записи или null, если очередь переполнена и запись надо пропустить
+     */
+    ByteBuffer reserveLog(int size)
+    {
+        return logQueue.remaining() >= size ? logQueue : null;
+    }
+
+    /**
+     * Отправляет все, что можно отправить без блокировки
+     * Если сокет заполнен, подписывается на готовность к записи
+     * @param snapshotFrame последний закодированный кадр (режим чтения)
+     * @throws IOException если соединение разорвано
+     */
+    void flush(ByteBuffer snapshotFrame) throws IOException
+    {
+        while (true)
+        {
+            if (!logOut.hasRemaining() && !snapshotOut.hasRemaining() && !prepareNext(snapshotFrame))
+            {
+                key.interestOps(SelectionKey.OP_READ);
+                return;
+            }
+            channel.write(gather);
+            if (logOut.hasRemaining() || snapshotOut.hasRemaining())
+            {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Готовит следующую порцию данных: накопленный лог и свежий снимок
+     * @param snapshotFrame последний закодированный кадр
+     * @return есть ли что отправлять
+     */
+    private boolean prepareNext(ByteBuffer snapshotFrame)
+    {
+        //очереди лога меняются местами без копирования
+        ByteBuffer sent = logOut;
+        logOut = logQueue.flip();
+        logQueue = sent.clear();
+        gather[0] = logOut;
+
+        snapshotOut.clear();
+        if (snapshotPending)
+        {
+            int length = snapshotFrame.remaining();
+            if (snapshotOut.capacity() < length)
+            {
+                //роботов стало больше, буфер растет один раз
+                snapshotOut = ByteBuffer.allocateDirect(length + length / 2);
+                gather[1] = snapshotOut;
+            }
+            snapshotOut.put(0, snapshotFrame, snapshotFrame.position(), length);
+            snapshotOut.limit(length);
+            snapshotPending = false;
+        }
+        else
+        {
+            snapshotOut.limit(0);
+        }
+        return logOut.hasRemaining() || snapshotOut.hasRemaining();
+    }
+
+    /**
+     * Закрывает соединение, ошибки при закрытии не важны
+     */
+    void close()
+    {
+        key.cancel();
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            // just ignore
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package telemetry;
+
+import log.LogChangeListener;
+import log.LogEntry;
+import log.LogLevel;
+import log.LogWindowSource;
+import log.Logger;
+import model.World;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Локальный сервер телеметрии на NIO
+ * Раздает подписчикам снимки мира 100 раз в секунду и записи лога
+ * Включается свойством -Drobots.telemetry=порт (TCP на localhost)
+ * или -Drobots.telemetry=unix:путь (Unix-сокет)
+ *
+ * Поток состоит из кадров, все числа в сетевом порядке байт:
+ * <pre>
+ * кадр      := тип(1 байт) длина_данных(int) данные
+ * снимок    := тип 1, версия(long) число_роботов(int) число_целей(int),
+ *              для каждой цели x(float) y(float)
+ *              и для каждого робота x(float) y(float) направление(float)
+ * запись    := тип 2, уровень(1 байт) число_символов(int) символы в UTF-16
+ * </pre>
+ * Кадр снимка кодируется один раз на все подключения, у каждого клиента
+ * свои прямые буферы и своя очередь лога, поэтому медленный клиент
+ * не задерживает остальных: ему достается только последний снимок,
+ * а записи лога, не поместившиеся в очередь, пропускаются
+ */
+public class TelemetryServer implements LogChangeListener
+{
+    public static final byte SNAPSHOT_FRAME = 1;
+    public static final byte LOG_FRAME = 2;
+
+    //период отправки снимков, 100 раз в секунду
+    private static final long SNAPSHOT_PERIOD_NANOS = 10_000_000L;
+    //заголовок кадра: тип и длина
+    private static final int FRAME_HEADER_SIZE = 5;
+    //начальный размер кадра снимка, дальше буфер растет вместе с миром
+    private static final int INITIAL_SNAPSHOT_CAPACITY = 4 * 1024;
+    //очередь лога одного клиента
+    private static final int LOG_QUEUE_CAPACITY = 64 * 1024;
+
+    private final World world;
+    private final LogWindowSource logSource;
+    private final SocketAddress address;
+    private final ArrayList<TelemetryClient> clients = new ArrayList<>();
+    //обработчик готовых ключей создается один раз, чтобы select не выделял память
+    private final Consumer<SelectionKey> keyHandler = this::handleKey;
+    //буфер для чтения из клиентов, данные от них не нужны, только признак закрытия
+    private final ByteBuffer discard = ByteBuffer.allocateDirect(256);
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread thread;
+    private volatile boolean running;
+    //в лог добавились записи, которые еще не разосланы
+    private volatile boolean logChanged;
+    //номер следующей записи лога, которую нужно разослать
+    private long logSent;
+    //запись, в которую копируются сообщения из источника
+    private final LogEntry logEntry = new LogEntry(LogLevel.Trace, "");
+
+    //последний закодированный кадр снимка (режим чтения)
+    private ByteBuffer snapshotFrame = ByteBuffer.allocateDirect(INITIAL_SNAPSHOT_CAPACITY).flip();
+    private long encodedVersion = -1;
+
+    public TelemetryServer(World world, LogWindowSource logSource, SocketAddress address)
+    {
+        this.world = world;
+        this.logSource = logSource;
+        this.address = address;
+    }
+
+    /**
+     * Создает сервер по свойству robots.telemetry
+     * @param world мир, снимки которого раздаются
+     * @param logSource источник записей лога
+     * @return сервер или null, если телеметрия не включена или адрес неверный
+     */
+    public static TelemetryServer fromSystemProperty(World world, LogWindowSource logSource)
+    {
+        String value = System.getProperty("robots.telemetry");
+        if (value == null || value.isEmpty())
+        {
+            return null;
+        }
+        try
+        {
+            return new TelemetryServer(world, logSource, parseAddress(value));
+        }
+        catch (IllegalArgumentException e)
+        {
+            Logger.error("Неверный адрес телеметрии \"" + value + "\": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Разбирает адрес: число - TCP-порт на localhost, unix:путь - Unix-сокет
+     * @param value строка адреса
+     * @return адрес сокета
+     * @throws IllegalArgumentException если строка не адрес или порт вне диапазона
+     */
+    static SocketAddress parseAddress(String value)
+    {
+        if (value.startsWith("unix:"))
+        {
+            return UnixDomainSocketAddress.of(value.substring("unix:".length()));
+        }
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(value));
+    }
+
+    /**
+     * Открывает сокет и запускает поток сервера
+     * @throws IOException если сокет не удалось открыть
+     */
+    public synchronized void start() throws IOException
+    {
+        if (running)
+        {
+            return;
+        }
+        selector = Selector.open();
+        if (address instanceof UnixDomainSocketAddress unixAddress)
+        {
+            removeStaleSocket(unixAddress.getPath());
+            serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        }
+        else
+        {
+            serverChannel = ServerSocketChannel.open();
+        }
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        logSent = logSource.totalCount();
+        logSource.registerListener(this);
+        running = true;
+        thread = new Thread(this::serve, "telemetry server");
+        thread.setDaemon(true);
+        thread.start();
+        Logger.debug("Телеметрия: ожидание подключений на " + getLocalAddress());
+    }
+
+    /**
+     * Убирает файл сокета, оставшийся от прошлого запуска
+     * Любой другой файл по этому пути не трогается
+     * @param path путь сокета
+     * @throws IOException если по пути лежит не сокет
+     */
+    private static void removeStaleSocket(Path path) throws IOException
+    {
+        BasicFileAttributes attributes;
+        try
+        {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        }
+        catch (NoSuchFileException e)
+        {
+            return;
+        }
+        //сокет - не обычный файл, не каталог и не ссылка
+        if (!attributes.isOther())
+        {
+            throw new IOException("по пути " + path + " уже есть файл, и это не сокет");
+        }
+        Files.delete(path);
+    }
+
+    /**
+     * Останавливает сервер и закрывает все подключения
+     */
+    public synchronized void stop()
+    {
+        if (!running)
+        {
+            return;
+        }
+        running = false;
+        logSource.unregisterListener(this);
+        selector.wakeup();
+        try
+        {
+            thread.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return адрес, на котором сервер принимает подключения
+     */
+    public SocketAddress getLocalAddress()
+    {
+        try
+        {
+            return serverChannel.getLocalAddress();
+        }
+        catch (IOException e)
+        {
+            return address;
+        }
+    }
+
+    /**
+     * Вызывается из любого потока при новой записи в логе, только будит сервер
+     */
+    @Override
+    public void onLogChanged()
+    {
+        logChanged = true;
+        selector.wakeup();
+    }
+
+    /**
+     * Цикл сервера: принять подключения, дослать данные медленным клиентам,
+     * разослать новые записи лога и раз в период - новый снимок
+     */
+    private void serve()
+    {
+        long nextSnapshot = System.nanoTime();
+        try
+        {
+            while (running)
+            {
+                long wait = nextSnapshot - System.nanoTime();
+                if (wait > 0)
+                {
+                    selector.select(keyHandler, Math.max(1, wait / 1_000_000L));
+                }
+                else
+                {
+                    selector.selectNow(keyHandler);
+                }
+                if (logChanged)
+                {
+                    logChanged = false;
+                    broadcastLog();
+                }
+                long now = System.nanoTime();
+                if (now - nextSnapshot >= 0)
+                {
+                    broadcastSnapshot();
+                    nextSnapshot += SNAPSHOT_PERIOD_NANOS;
+                    //если сильно отстали, не пытаемся догнать пропущенные кадры
+                    if (now - nextSnapshot >= 0)
+                    {
+                        nextSnapshot = now + SNAPSHOT_PERIOD_NANOS;
+                    }
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            Logger.error("Телеметрия остановлена: " + e.getMessage());
+        }
+        finally
+        {
+            closeAll();
+        }
+    }
+
+    private void handleKey(SelectionKey key)
+    {
+        if (!key.isValid())
+        {
+            return;
+        }
+        if (key.isAcceptable())
+        {
+            accept();
+            return;
+        }
+        TelemetryClient client = (TelemetryClient)key.attachment();
+        try
+        {
+            if (key.isReadable())
+            {
+                discard.clear();
+                if (client.getChannel().read(discard) < 0)
+                {
+                    disconnect(client);
+                    return;
+                }
+            }
+            if (key.isWritable())
+            {
+                client.flush(snapshotFrame);
+            }
+        }
+        catch (IOException e)
+        {
+            disconnect(client);
+        }
+    }
+
+    private void accept()
+    {
+        try
+        {
+            SocketChannel channel = serverChannel.accept();
+            if (channel == null)
+            {
+                return;
+            }
+            channel.configureBlocking(false);
+            if (!(address instanceof UnixDomainSocketAddress))
+            {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            TelemetryClient client = new TelemetryClient(channel, key,
+                    LOG_QUEUE_CAPACITY, snapshotFrame.capacity());
+            key.attach(client);
+            clients.add(client);
+            //новый клиент сразу получает текущий снимок
+            client.markSnapshotPending();
+            client.flush(snapshotFrame);
+        }
+        catch (IOException e)
+        {
+            // клиент успел отключиться, просто ждем следующего
+        }
+    }
+
+    private void disconnect(TelemetryClient client)
+    {
+        client.close();
+        clients.remove(client);
+    }
+
+    /**
+     * Кодирует снимок мира, если он изменился, и отправляет его всем клиентам
+     */
+    private void broadcastSnapshot()
+    {
+        if (!encodeSnapshot())
+        {
+            return;
+        }
+        for (int i = clients.size() - 1; i >= 0; i--)
+        {
+            TelemetryClient client = clients.get(i);
+            client.markSnapshotPending();
+            flush(client);
+        }
+    }
+
+    /**
+     * Кодирует состояние мира в кадр прямо из мира, без снимка
+     * @return изменился ли мир с прошлого кадра
+     */
+    private boolean encodeSnapshot()
+    {
+        ByteBuffer frame = snapshotFrame;
+        int sentLength = frame.limit();
+        while (true)
+        {
+            frame.clear().position(FRAME_HEADER_SIZE);
+            int payload = world.writeSnapshot(frame, encodedVersion);
+            if (payload == 0)
+            {
+                //мир не менялся, прошлый кадр остается как был
+                frame.position(0).limit(sentLength);
+                return false;
+            }
+            if (payload > 0)
+            {
+                frame.put(0, SNAPSHOT_FRAME).putInt(1, payload);
+                snapshotFrame = frame.flip();
+                encodedVersion = frame.getLong(FRAME_HEADER_SIZE);
+                return true;
+            }
+            //роботов стало больше, буфер растет один раз
+            int capacity = FRAME_HEADER_SIZE - payload;
+            frame = ByteBuffer.allocateDirect(capacity + capacity / 2);
+            sentLength = 0;
+        }
+    }
+
+    /**
+     * Кладет новые записи лога в очереди всех клиентов
+     */
+    private void broadcastLog()
+    {
+        long total = logSource.totalCount();
+        //записи, вытесненные из источника до отправки, пропускаются
+        logSent = Math.max(logSent, logSource.firstSequence());
+        for (; logSent < total; logSent++)
+        {
+            if (!logSource.copyEntry(logSent, logEntry))
+            {
+                continue;
+            }
+            String message = logEntry.getMessage();
+            int frameSize = FRAME_HEADER_SIZE + 1 + 4 + message.length() * 2;
+            for (int i = clients.size() - 1; i >= 0; i--)
+            {
+                ByteBuffer queue = clients.get(i).reserveLog(frameSize);
+                if (queue != null)
+                {
+                    encodeLog(queue, logEntry.getLevel().level(), message);
+                }
+            }
+        }
+        for (int i = clients.size() - 1; i >= 0; i--)
+        {
+            flush(clients.get(i));
+        }
+    }
+
+    private static void encodeLog(ByteBuffer queue, int level, String message)
+    {
+        queue.put(LOG_FRAME).putInt(1 + 4 + message.length() * 2);
+        queue.put((byte)level).putInt(message.length());
+        for (int i = 0; i < message.length(); i++)
+        {
+            queue.putChar(message.charAt(i));
+        }
+    }
+
+    private void flush(TelemetryClient client)
+    {
+        try
+        {
+            client.flush(snapshotFrame);
+        }
+        catch (IOException e)
+        {
+            disconnect(client);
+        }
+    }
+
+    private void closeAll()
+    {
+        for (TelemetryClient client : clients)
+        {
+            client.close();
+        }
+        clients.clear();
+        try
+        {
+            serverChannel.close();
+            selector.close();
+            if (address instanceof UnixDomainSocketAddress unixAddress)
+            {
+                Files.deleteIfExists(unixAddress.getPath());
+            }
+        }
+        catch (IOException e)
+        {
+            // just ignore
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package gui;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Горячие пути не выделяют память, см. {@link AllocationCheck}
+ */
+class AllocationCheckTest
+{
+    @Test
+    void hotPathsDoNotAllocate()
+    {
+        assertTrue(AllocationCheck.run(System.out::println));
+    }
+}
@@ -0,0 +1,17 @@
+package gui;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Отрисовка по плиткам совпадает с обычной до пикселя, см. {@link TileRenderCheck}
+ */
+class TileRenderCheckTest
+{
+    @Test
+    void tiledRenderingMatchesPlainRendering()
+    {
+        assertTrue(TileRenderCheck.run(System.out::println));
+    }
+}
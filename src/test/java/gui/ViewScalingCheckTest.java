@@ -0,0 +1,17 @@
+package gui;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Окна игры не шагают мир сами, см. {@link ViewScalingCheck}
+ */
+class ViewScalingCheckTest
+{
+    @Test
+    void worldStepsOncePerTickWithManyViews()
+    {
+        assertTrue(ViewScalingCheck.run(System.out::println));
+    }
+}
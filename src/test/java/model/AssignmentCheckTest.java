@@ -0,0 +1,17 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Назначение целей укладывается в гарантию аукциона, см. {@link AssignmentCheck}
+ */
+class AssignmentCheckTest
+{
+    @Test
+    void assignmentStaysWithinAuctionGuarantee()
+    {
+        assertTrue(AssignmentCheck.run(System.out::println));
+    }
+}